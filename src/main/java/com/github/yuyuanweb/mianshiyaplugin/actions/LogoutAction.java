@@ -6,6 +6,7 @@ import com.github.yuyuanweb.mianshiyaplugin.config.GlobalState;
 import com.github.yuyuanweb.mianshiyaplugin.constant.IconConstant;
 import com.github.yuyuanweb.mianshiyaplugin.constant.KeyConstant;
 import com.github.yuyuanweb.mianshiyaplugin.model.common.BaseResponse;
+import com.github.yuyuanweb.mianshiyaplugin.service.ProfileService;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.DumbAware;
@@ -54,6 +55,7 @@ public class LogoutAction extends AnAction implements DumbAware {
                 GlobalState globalState = GlobalState.getInstance();
                 globalState.removeSavedCookie();
                 globalState.removeSavedUser();
+                ProfileService.getInstance().invalidateLoginUser();
                 // 3. 更改 actionGroup
                 ActionManager actionManager = ActionManager.getInstance();
                 // 3.1 删除 注销
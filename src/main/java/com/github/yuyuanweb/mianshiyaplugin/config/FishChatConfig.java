@@ -11,6 +11,13 @@ public class FishChatConfig {
     private static final String TOKEN_KEY = PREFIX + "token";
     private static final String SHOW_AVATAR_KEY = PREFIX + "showAvatar";
     private static final String SHOW_IMAGES_KEY = PREFIX + "showImages";
+    private static final String FLOOD_THRESHOLD_KEY = PREFIX + "floodThreshold";
+    private static final String BINARY_FRAMES_KEY = PREFIX + "binaryFrames";
+    
+    /**
+     * 默认刷屏阈值（条/秒）
+     */
+    public static final int DEFAULT_FLOOD_THRESHOLD = 10;
     
     private final PropertiesComponent propertiesComponent;
     
@@ -60,4 +67,32 @@ public class FishChatConfig {
     public void setShowImages(boolean showImages) {
         propertiesComponent.setValue(SHOW_IMAGES_KEY, String.valueOf(showImages), String.valueOf(true));
     }
+    
+    /**
+     * 刷屏阈值：每秒收到的消息超过该值时切换为精简显示
+     */
+    public int getFloodThreshold() {
+        return Math.max(1, propertiesComponent.getInt(FLOOD_THRESHOLD_KEY, DEFAULT_FLOOD_THRESHOLD));
+    }
+    
+    /**
+     * 设置刷屏阈值
+     */
+    public void setFloodThreshold(int floodThreshold) {
+        propertiesComponent.setValue(FLOOD_THRESHOLD_KEY, floodThreshold, DEFAULT_FLOOD_THRESHOLD);
+    }
+    
+    /**
+     * 是否向服务器提议使用紧凑二进制帧
+     */
+    public boolean isBinaryFrames() {
+        return propertiesComponent.getBoolean(BINARY_FRAMES_KEY, false);
+    }
+    
+    /**
+     * 设置是否使用紧凑二进制帧
+     */
+    public void setBinaryFrames(boolean binaryFrames) {
+        propertiesComponent.setValue(BINARY_FRAMES_KEY, binaryFrames, false);
+    }
 } 
\ No newline at end of file
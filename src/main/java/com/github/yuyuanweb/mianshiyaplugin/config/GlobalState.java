@@ -19,6 +19,13 @@ public class GlobalState implements PersistentStateComponent<GlobalState.State>
         public String cookie = "";
         public int pageSize = PageConstant.PAGE_SIZE;
         public User user = null;
+        public long userFetchedAt = 0;
+        /**
+         * 摸鱼室用户信息缓存，键为令牌摘要
+         */
+        public String fishUserInfoKey = "";
+        public String fishUserInfo = "";
+        public long fishUserInfoFetchedAt = 0;
     }
 
     private State state = new State();
@@ -42,6 +49,16 @@ public class GlobalState implements PersistentStateComponent<GlobalState.State>
         state.user = user;
     }
 
+    public void saveUserFetchedAt(long fetchedAt) {
+        state.userFetchedAt = fetchedAt;
+    }
+
+    public void saveFishUserInfo(String key, String userInfo, long fetchedAt) {
+        state.fishUserInfoKey = key;
+        state.fishUserInfo = userInfo;
+        state.fishUserInfoFetchedAt = fetchedAt;
+    }
+
     public String getSavedCookie() {
         return state.cookie;
     }
@@ -50,12 +67,29 @@ public class GlobalState implements PersistentStateComponent<GlobalState.State>
         return state.user;
     }
 
+    public long getSavedUserFetchedAt() {
+        return state.userFetchedAt;
+    }
+
+    public String getSavedFishUserInfoKey() {
+        return state.fishUserInfoKey;
+    }
+
+    public String getSavedFishUserInfo() {
+        return state.fishUserInfo;
+    }
+
+    public long getSavedFishUserInfoFetchedAt() {
+        return state.fishUserInfoFetchedAt;
+    }
+
     public void removeSavedCookie() {
         state.cookie = "";
     }
 
     public void removeSavedUser() {
         state.user = null;
+        state.userFetchedAt = 0;
     }
 
     public static GlobalState getInstance() {
@@ -0,0 +1,83 @@
+package com.github.yuyuanweb.mianshiyaplugin.config;
+
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.project.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热榜配置管理
+ */
+public class HotNewsConfig {
+    private static final String PREFIX = "hotNews.";
+    private static final String PREVIEW_POOL_SIZE_KEY = PREFIX + "previewPoolSize";
+    private static final String READER_MODE_KEY = PREFIX + "readerMode";
+    private static final String WATCH_TERMS_KEY = PREFIX + "watchTerms";
+
+    /**
+     * 默认预加载浏览器数量
+     */
+    public static final int DEFAULT_PREVIEW_POOL_SIZE = 1;
+    /**
+     * 预加载浏览器数量上限，每个浏览器都会占用一个 Chromium 渲染进程
+     */
+    public static final int MAX_PREVIEW_POOL_SIZE = 3;
+
+    private final PropertiesComponent propertiesComponent;
+
+    public HotNewsConfig(Project project) {
+        // 使用项目级配置
+        propertiesComponent = PropertiesComponent.getInstance(project);
+    }
+
+    /**
+     * 预加载浏览器数量，为 0 时只使用一个浏览器，不预加载
+     */
+    public int getPreviewPoolSize() {
+        int size = propertiesComponent.getInt(PREVIEW_POOL_SIZE_KEY, DEFAULT_PREVIEW_POOL_SIZE);
+        return Math.max(0, Math.min(MAX_PREVIEW_POOL_SIZE, size));
+    }
+
+    /**
+     * 设置预加载浏览器数量
+     */
+    public void setPreviewPoolSize(int previewPoolSize) {
+        propertiesComponent.setValue(PREVIEW_POOL_SIZE_KEY, previewPoolSize, DEFAULT_PREVIEW_POOL_SIZE);
+    }
+
+    /**
+     * 是否使用阅读模式预览，关闭时使用内置浏览器显示完整网页
+     */
+    public boolean isReaderMode() {
+        return propertiesComponent.getBoolean(READER_MODE_KEY, true);
+    }
+
+    /**
+     * 设置是否使用阅读模式预览
+     */
+    public void setReaderMode(boolean readerMode) {
+        propertiesComponent.setValue(READER_MODE_KEY, readerMode, true);
+    }
+
+    /**
+     * 热榜关注词，新出现的标题包含其中任意一个时提醒
+     */
+    public List<String> getWatchTerms() {
+        List<String> terms = new ArrayList<>();
+        for (String line : propertiesComponent.getValue(WATCH_TERMS_KEY, "").split("\n")) {
+            String term = line.trim();
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 设置热榜关注词，每行一个
+     */
+    public void setWatchTerms(List<String> terms) {
+        propertiesComponent.setValue(WATCH_TERMS_KEY, String.join("\n", terms), "");
+    }
+}
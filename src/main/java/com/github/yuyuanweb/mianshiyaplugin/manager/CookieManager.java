@@ -1,10 +1,10 @@
 package com.github.yuyuanweb.mianshiyaplugin.manager;
 
 import cn.hutool.core.util.StrUtil;
-import com.github.yuyuanweb.mianshiyaplugin.config.ApiConfig;
 import com.github.yuyuanweb.mianshiyaplugin.config.GlobalState;
 import com.github.yuyuanweb.mianshiyaplugin.constant.KeyConstant;
 import com.github.yuyuanweb.mianshiyaplugin.model.response.User;
+import com.github.yuyuanweb.mianshiyaplugin.service.ProfileService;
 import com.github.yuyuanweb.mianshiyaplugin.utils.PanelUtil;
 import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
@@ -12,7 +12,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.cef.network.CefCookieManager;
 
 import javax.swing.*;
-import java.io.IOException;
 
 /**
  * Cookie 管理器
@@ -23,17 +22,10 @@ import java.io.IOException;
 public class CookieManager {
 
     /**
-     * 获取当前登录用户
+     * 获取当前登录用户，结果由 {@link ProfileService} 缓存
      */
     public static User getLoginUser() {
-        User user = null;
-        try {
-            user = ApiConfig.mianShiYaApi.getLoginUser().execute().body().getData();
-        } catch (IOException e) {
-            log.error("Failed to get login user", e);
-            // throw new RuntimeException(e);
-        }
-        return user;
+        return ProfileService.getInstance().getLoginUser();
     }
 
     public static void handleCookie(CefCookieManager cefCookieManager, Runnable afterLogin) {
@@ -0,0 +1,84 @@
+package com.github.yuyuanweb.mianshiyaplugin.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 聊天消息内容的解析结果
+ * 由若干节点（文本、图片、链接、@提及、表情）按原文顺序组成
+ */
+public class ChatContent {
+
+    public static final ChatContent EMPTY = new ChatContent(Collections.emptyList());
+
+    /**
+     * 节点类型
+     */
+    public enum NodeType {
+        TEXT,
+        IMAGE,
+        LINK,
+        MENTION,
+        EMOJI
+    }
+
+    /**
+     * 内容节点
+     * TEXT 为原始文本（可能包含换行），IMAGE/EMOJI/LINK 为地址，MENTION 为用户名（不含@）
+     */
+    public static class Node {
+        private final NodeType type;
+        private final String value;
+
+        public Node(NodeType type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        public NodeType getType() {
+            return type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final List<Node> nodes;
+    private final boolean hasText;
+    private final List<String> imageUrls;
+
+    public ChatContent(List<Node> nodes) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        boolean text = false;
+        List<String> images = new ArrayList<>();
+        for (Node node : nodes) {
+            if (node.getType() == NodeType.IMAGE) {
+                images.add(node.getValue());
+            } else {
+                text = true;
+            }
+        }
+        this.hasText = text;
+        this.imageUrls = images.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(images);
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 是否有需要在文本区域显示的节点（图片之外的节点）
+     */
+    public boolean hasText() {
+        return hasText;
+    }
+
+    /**
+     * 消息中的图片地址
+     */
+    public List<String> getImageUrls() {
+        return imageUrls;
+    }
+}
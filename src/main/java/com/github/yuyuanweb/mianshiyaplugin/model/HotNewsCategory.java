@@ -1,87 +0,0 @@
-package com.github.yuyuanweb.mianshiyaplugin.model;
-
-import java.util.List;
-
-public class HotNewsCategory {
-    private String id;
-    private String name;
-    private String type;
-    private String typeName;
-    private String iconUrl;
-    private String updateTime;
-    private int category;
-    private String categoryName;
-    private List<HotNews> data;
-
-    public String getId() {
-        return id;
-    }
-
-    public void setId(String id) {
-        this.id = id;
-    }
-
-    public String getName() {
-        return name;
-    }
-
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    public String getType() {
-        return type;
-    }
-
-    public void setType(String type) {
-        this.type = type;
-    }
-
-    public String getTypeName() {
-        return typeName;
-    }
-
-    public void setTypeName(String typeName) {
-        this.typeName = typeName;
-    }
-
-    public String getIconUrl() {
-        return iconUrl;
-    }
-
-    public void setIconUrl(String iconUrl) {
-        this.iconUrl = iconUrl;
-    }
-
-    public String getUpdateTime() {
-        return updateTime;
-    }
-
-    public void setUpdateTime(String updateTime) {
-        this.updateTime = updateTime;
-    }
-
-    public int getCategory() {
-        return category;
-    }
-
-    public void setCategory(int category) {
-        this.category = category;
-    }
-
-    public String getCategoryName() {
-        return categoryName;
-    }
-
-    public void setCategoryName(String categoryName) {
-        this.categoryName = categoryName;
-    }
-
-    public List<HotNews> getData() {
-        return data;
-    }
-
-    public void setData(List<HotNews> data) {
-        this.data = data;
-    }
-} 
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.WebSocket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 紧凑二进制帧编解码器
+ * 与 JSON 帧结构相同，但字段名使用字典编号，长度和整数使用变长编码：
+ * <pre>
+ * 值   = 类型(1字节) 内容
+ * 对象 = varint(字段数) { 键 值 }
+ * 键   = varint(字典编号+1)，或 0 后跟字符串
+ * 数组 = varint(元素数) { 值 }
+ * 字符串 = varint(UTF-8字节数) 字节
+ * 整数 = zigzag varint，小数 = 8字节 IEEE 754
+ * </pre>
+ */
+public class BinaryChatFrameCodec implements ChatFrameCodec {
+
+    public static final String SUBPROTOCOL = "fish-chat.bin.v1";
+    public static final BinaryChatFrameCodec INSTANCE = new BinaryChatFrameCodec();
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_FALSE = 1;
+    private static final byte TYPE_TRUE = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_ARRAY = 6;
+    private static final byte TYPE_OBJECT = 7;
+
+    /**
+     * 字段名字典，只能在末尾追加，修改顺序需要升级子协议版本
+     */
+    private static final String[] KEYS = {
+            "type", "data", "content", "message", "id", "sender", "name", "avatar",
+            "level", "points", "isAdmin", "region", "country", "avatarFramerUrl", "titleId", "timestamp",
+            "userId", "users", "status"
+    };
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEX.put(KEYS[i], i);
+        }
+    }
+
+    private BinaryChatFrameCodec() {
+    }
+
+    @Override
+    public String getSubprotocol() {
+        return SUBPROTOCOL;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> send(WebSocket webSocket, JsonObject frame) {
+        return webSocket.sendBinary(ByteBuffer.wrap(encode(frame)), true);
+    }
+
+    /**
+     * 服务器在协商二进制子协议后仍可能发送文本帧，按 JSON 解析
+     */
+    @Override
+    public JsonObject decodeText(String text) {
+        return JsonChatFrameCodec.INSTANCE.decodeText(text);
+    }
+
+    /**
+     * @throws IllegalArgumentException 帧不完整或内容损坏
+     */
+    @Override
+    public JsonObject decodeBinary(ByteBuffer data) {
+        JsonElement element;
+        try {
+            element = readValue(data);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("二进制帧不完整", e);
+        }
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("二进制帧不是对象");
+        }
+        return element.getAsJsonObject();
+    }
+
+    /**
+     * 编码为二进制帧
+     */
+    public byte[] encode(JsonObject frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        writeValue(out, frame);
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.write(TYPE_NULL);
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            out.write(TYPE_OBJECT);
+            writeVarint(out, object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                Integer index = KEY_INDEX.get(entry.getKey());
+                if (index != null) {
+                    writeVarint(out, index + 1);
+                } else {
+                    writeVarint(out, 0);
+                    writeString(out, entry.getKey());
+                }
+                writeValue(out, entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.write(TYPE_ARRAY);
+            writeVarint(out, array.size());
+            for (JsonElement item : array) {
+                writeValue(out, item);
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TYPE_TRUE : TYPE_FALSE);
+            } else if (primitive.isNumber()) {
+                writeNumber(out, primitive.getAsNumber());
+            } else {
+                out.write(TYPE_STRING);
+                writeString(out, primitive.getAsString());
+            }
+        }
+    }
+
+    private static void writeNumber(ByteArrayOutputStream out, Number number) {
+        String text = number.toString();
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                long value = Long.parseLong(text);
+                out.write(TYPE_INTEGER);
+                writeVarint(out, (value << 1) ^ (value >> 63));
+                return;
+            } catch (NumberFormatException ignored) {
+                // 超出 long 范围，按小数编码
+            }
+        }
+        out.write(TYPE_DOUBLE);
+        long bits = Double.doubleToLongBits(number.doubleValue());
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static JsonElement readValue(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case TYPE_NULL:
+                return JsonNull.INSTANCE;
+            case TYPE_FALSE:
+                return new JsonPrimitive(false);
+            case TYPE_TRUE:
+                return new JsonPrimitive(true);
+            case TYPE_INTEGER: {
+                long raw = readVarint(in);
+                return new JsonPrimitive((raw >>> 1) ^ -(raw & 1));
+            }
+            case TYPE_DOUBLE:
+                return new JsonPrimitive(in.getDouble());
+            case TYPE_STRING:
+                return new JsonPrimitive(readString(in));
+            case TYPE_ARRAY: {
+                int size = readLength(in);
+                JsonArray array = new JsonArray();
+                for (int i = 0; i < size; i++) {
+                    array.add(readValue(in));
+                }
+                return array;
+            }
+            case TYPE_OBJECT: {
+                int size = readLength(in);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    long key = readVarint(in);
+                    String name;
+                    if (key == 0) {
+                        name = readString(in);
+                    } else if (key <= KEYS.length) {
+                        name = KEYS[(int) key - 1];
+                    } else {
+                        throw new IllegalArgumentException("未知的字段编号: " + key);
+                    }
+                    object.add(name, readValue(in));
+                }
+                return object;
+            }
+            default:
+                throw new IllegalArgumentException("未知的值类型: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readLength(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("字符串长度超出帧范围");
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * 读取长度或数量，不能超过剩余字节数
+     */
+    private static int readLength(ByteBuffer in) {
+        long value = readVarint(in);
+        if (value < 0 || value > in.remaining() + 1L) {
+            throw new IllegalArgumentException("长度超出帧范围: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint 过长");
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.google.gson.JsonObject;
+
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 摸鱼室 WebSocket 帧编解码器
+ * 连接时通过 WebSocket 子协议协商使用的编解码器，未协商时使用 JSON 文本帧
+ */
+public interface ChatFrameCodec {
+
+    /**
+     * 对应的 WebSocket 子协议，默认编解码器返回 null
+     */
+    String getSubprotocol();
+
+    /**
+     * 编码并发送一帧
+     */
+    CompletableFuture<WebSocket> send(WebSocket webSocket, JsonObject frame);
+
+    /**
+     * 解码文本帧
+     */
+    JsonObject decodeText(String text);
+
+    /**
+     * 解码二进制帧
+     */
+    JsonObject decodeBinary(ByteBuffer data);
+
+    /**
+     * 按服务器选择的子协议获取编解码器，未选择或无法识别时使用 JSON
+     */
+    static ChatFrameCodec forSubprotocol(String subprotocol) {
+        if (BinaryChatFrameCodec.SUBPROTOCOL.equals(subprotocol)) {
+            return BinaryChatFrameCodec.INSTANCE;
+        }
+        return JsonChatFrameCodec.INSTANCE;
+    }
+}
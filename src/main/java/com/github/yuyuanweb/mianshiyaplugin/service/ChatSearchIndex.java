@@ -0,0 +1,288 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 聊天消息倒排索引
+ * 消息到达时增量建立索引：中日韩文字按单字和相邻二元组切分，其他文字按单词切分，
+ * 另外按发送者和时间建立索引，查询只需合并倒排表，不需要遍历全部消息。
+ * <p>
+ * 查询语法：空格分隔的关键词（全部匹配），{@code from:用户名} 按发送者过滤，
+ * {@code since:30m}/{@code since:2h}/{@code since:1d} 按时间过滤。
+ * <p>
+ * 非线程安全，只在EDT上使用。
+ */
+public class ChatSearchIndex {
+
+    private static final String FROM_PREFIX = "from:";
+    private static final String SINCE_PREFIX = "since:";
+
+    /**
+     * 词 -> 文档编号列表，文档编号递增分配，所以列表天然有序
+     */
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    private final Map<String, IntList> senderPostings = new HashMap<>();
+    /**
+     * 小写用户名 -> 发送者ID
+     */
+    private final Map<String, String> senderIdsByName = new HashMap<>();
+    private final List<String> texts = new ArrayList<>();
+    private long[] timestamps = new long[64];
+
+    /**
+     * 添加消息到索引
+     * @return 文档编号
+     */
+    public int add(FishChatService.ChatMessage message, long timestamp) {
+        int docId = texts.size();
+        String text = toSearchText(message.getParsedContent());
+        texts.add(text);
+        if (docId == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, docId * 2);
+        }
+        timestamps[docId] = timestamp;
+
+        tokenize(text, false, token -> postings.computeIfAbsent(token, key -> new IntList()).addUnique(docId));
+
+        FishChatService.Sender sender = message.getSender();
+        if (sender != null) {
+            String senderId = sender.getId() != null ? sender.getId() : sender.getName();
+            if (senderId != null) {
+                senderPostings.computeIfAbsent(senderId, key -> new IntList()).add(docId);
+                if (sender.getName() != null) {
+                    senderIdsByName.put(sender.getName().toLowerCase(Locale.ROOT), senderId);
+                }
+            }
+        }
+        return docId;
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        postings.clear();
+        senderPostings.clear();
+        senderIdsByName.clear();
+        texts.clear();
+        timestamps = new long[64];
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * 查询
+     * @return 匹配的文档编号集合；查询为空时返回 null，表示不过滤
+     */
+    public BitSet search(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return null;
+        }
+        int docCount = texts.size();
+        BitSet result = new BitSet(docCount);
+        result.set(0, docCount);
+
+        List<String> terms = new ArrayList<>();
+        for (String part : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (part.startsWith(FROM_PREFIX) && part.length() > FROM_PREFIX.length()) {
+                result.and(senderDocs(part.substring(FROM_PREFIX.length())));
+            } else if (part.startsWith(SINCE_PREFIX) && part.length() > SINCE_PREFIX.length()) {
+                long since = parseSince(part.substring(SINCE_PREFIX.length()));
+                if (since > 0) {
+                    for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+                        if (timestamps[doc] < since) {
+                            result.clear(doc);
+                        }
+                    }
+                }
+            } else {
+                terms.add(part);
+                tokenize(part, true, token -> result.and(tokenDocs(token, docCount)));
+            }
+        }
+
+        // 二元组只保证候选包含所有片段，再用原文确认片段的顺序
+        if (!terms.isEmpty()) {
+            for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+                String text = texts.get(doc);
+                for (String term : terms) {
+                    if (!text.contains(term)) {
+                        result.clear(doc);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 某个词的文档集合，单词按前缀匹配
+     */
+    private BitSet tokenDocs(String token, int docCount) {
+        BitSet docs = new BitSet(docCount);
+        if (isCjk(token.charAt(0))) {
+            IntList list = postings.get(token);
+            if (list != null) {
+                list.addTo(docs);
+            }
+        } else {
+            SortedMap<String, IntList> matches = postings.subMap(token, token + Character.MAX_VALUE);
+            for (IntList list : matches.values()) {
+                list.addTo(docs);
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * 用户名包含给定文本的发送者的文档集合
+     */
+    private BitSet senderDocs(String name) {
+        BitSet docs = new BitSet(texts.size());
+        for (Map.Entry<String, String> entry : senderIdsByName.entrySet()) {
+            if (entry.getKey().contains(name)) {
+                IntList list = senderPostings.get(entry.getValue());
+                if (list != null) {
+                    list.addTo(docs);
+                }
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * 解析 30m / 2h / 1d 形式的相对时间，返回起始时间戳，无法解析时返回 0
+     */
+    private static long parseSince(String value) {
+        char unit = value.charAt(value.length() - 1);
+        long unitMillis;
+        switch (unit) {
+            case 'm':
+                unitMillis = 60_000L;
+                break;
+            case 'h':
+                unitMillis = 3_600_000L;
+                break;
+            case 'd':
+                unitMillis = 86_400_000L;
+                break;
+            default:
+                return 0;
+        }
+        try {
+            return System.currentTimeMillis() - Long.parseLong(value.substring(0, value.length() - 1)) * unitMillis;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 可搜索的文本：文本、链接和@提及，统一小写
+     */
+    private static String toSearchText(ChatContent content) {
+        StringBuilder text = new StringBuilder();
+        for (ChatContent.Node node : content.getNodes()) {
+            switch (node.getType()) {
+                case TEXT:
+                case LINK:
+                    text.append(node.getValue()).append(' ');
+                    break;
+                case MENTION:
+                    text.append('@').append(node.getValue()).append(' ');
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 切分词语
+     * 索引时中日韩文字同时输出单字和二元组；查询时连续两个字以上只输出二元组
+     */
+    private static void tokenize(String text, boolean forQuery, Consumer<String> sink) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int end = i;
+                while (end < length && isCjk(text.charAt(end))) {
+                    end++;
+                }
+                boolean single = end - i == 1;
+                for (int j = i; j < end; j++) {
+                    if (!forQuery || single) {
+                        sink.accept(String.valueOf(text.charAt(j)));
+                    }
+                    if (j + 1 < end) {
+                        sink.accept(text.substring(j, j + 2));
+                    }
+                }
+                i = end;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = i;
+                while (end < length && Character.isLetterOrDigit(text.charAt(end)) && !isCjk(text.charAt(end))) {
+                    end++;
+                }
+                sink.accept(text.substring(i, end));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 有序整数列表
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * 同一文档中重复出现的词只记录一次
+         */
+        void addUnique(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+
+        void addTo(BitSet bitSet) {
+            for (int i = 0; i < size; i++) {
+                bitSet.set(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天发送者注册表
+ * 每个用户ID只保留一个当前的 {@link FishChatService.Sender} 实例，信息未变化的消息共享同一引用；
+ * 地区、国家、称号等重复率高的字段统一使用同一个字符串实例。
+ * 返回的实例发布后不再修改，用户信息变化时创建新实例替换，已显示的消息不受影响，界面线程读取时无需同步。
+ * 只有比已记录的信息更新的记录才覆盖已有字段；“未知”等占位值和空值不覆盖已有的真实数据。
+ */
+public class ChatSenderRegistry {
+
+    /**
+     * 注册表保留的发送者数量上限，被淘汰的发送者仍由引用它的消息持有
+     */
+    static final int MAX_SENDERS = 2048;
+    /**
+     * 字符串池大小上限，超过后不再加入新值
+     */
+    private static final int MAX_POOLED_VALUES = 4096;
+    /**
+     * 本地发送和历史解析在缺少数据时填入的占位值
+     */
+    private static final String UNKNOWN = "未知";
+    private static final String UNKNOWN_USER = "未知用户";
+
+    private final Map<String, Entry> senders = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SENDERS;
+        }
+    };
+    private final Map<String, String> valuePool = new ConcurrentHashMap<>();
+
+    /**
+     * 返回该用户当前的发送者实例，必要时合并新解析的信息
+     * @param parsed 本条消息解析出的发送者，尚未共享给其他线程，可能被丢弃
+     * @param recordTime 本条记录的毫秒时间戳，早于已合并的记录时只补充缺失的字段
+     */
+    public FishChatService.Sender canonicalize(FishChatService.Sender parsed, long recordTime) {
+        if (parsed == null) {
+            return null;
+        }
+        String id = parsed.getId();
+        synchronized (senders) {
+            Entry entry = id == null ? null : senders.get(id);
+            if (entry == null) {
+                FishChatService.Sender created = merge(null, parsed, true);
+                if (id != null) {
+                    senders.put(id, new Entry(created, recordTime));
+                }
+                return created;
+            }
+            boolean newer = recordTime >= entry.updatedAt;
+            FishChatService.Sender merged = merge(entry.sender, parsed, newer);
+            if (merged != entry.sender || newer) {
+                senders.put(id, new Entry(merged, Math.max(recordTime, entry.updatedAt)));
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * 合并发送者信息
+     * @param current 当前实例，为 null 时以 source 为准
+     * @param newer source 是否比 current 更新；较旧的记录只补充 current 中缺失的字段
+     * @return 与 current 相同时返回 current 本身，否则返回新实例
+     */
+    private FishChatService.Sender merge(FishChatService.Sender current, FishChatService.Sender source, boolean newer) {
+        FishChatService.Sender result = new FishChatService.Sender();
+        result.setId(source.getId());
+        if (current == null) {
+            result.setName(source.getName());
+            result.setAvatar(source.getAvatar());
+            result.setLevel(source.getLevel());
+            result.setPoints(source.getPoints());
+            result.setAdmin(source.isAdmin());
+            result.setRegion(pooled(source.getRegion()));
+            result.setCountry(pooled(source.getCountry()));
+            result.setAvatarFramerUrl(pooled(source.getAvatarFramerUrl()));
+            result.setTitleId(pooled(source.getTitleId()));
+            return result;
+        }
+        // 名称和头像地址每个用户各不相同，不放入字符串池，值未变化时保留原字符串
+        result.setName(pick(current.getName(), source.getName(), newer));
+        result.setAvatar(pick(current.getAvatar(), source.getAvatar(), newer));
+        result.setLevel(newer ? source.getLevel() : current.getLevel());
+        result.setPoints(newer ? source.getPoints() : current.getPoints());
+        result.setAdmin(newer ? source.isAdmin() : current.isAdmin());
+        result.setRegion(pooled(pick(current.getRegion(), source.getRegion(), newer)));
+        result.setCountry(pooled(pick(current.getCountry(), source.getCountry(), newer)));
+        result.setAvatarFramerUrl(pooled(pick(current.getAvatarFramerUrl(), source.getAvatarFramerUrl(), newer)));
+        result.setTitleId(pooled(pick(current.getTitleId(), source.getTitleId(), newer)));
+        return sameAs(current, result) ? current : result;
+    }
+
+    /**
+     * 选择字段值：占位值和空值不覆盖真实数据，都是真实数据时取较新的
+     */
+    private static String pick(String current, String incoming, boolean newer) {
+        if (isPlaceholder(incoming)) {
+            return current != null ? current : incoming;
+        }
+        if (isPlaceholder(current) || newer) {
+            return equals(current, incoming) ? current : incoming;
+        }
+        return current;
+    }
+
+    private static boolean isPlaceholder(String value) {
+        return value == null || value.isEmpty() || UNKNOWN.equals(value) || UNKNOWN_USER.equals(value);
+    }
+
+    private static boolean sameAs(FishChatService.Sender a, FishChatService.Sender b) {
+        return equals(a.getName(), b.getName())
+                && equals(a.getAvatar(), b.getAvatar())
+                && a.getLevel() == b.getLevel()
+                && a.getPoints() == b.getPoints()
+                && a.isAdmin() == b.isAdmin()
+                && equals(a.getRegion(), b.getRegion())
+                && equals(a.getCountry(), b.getCountry())
+                && equals(a.getAvatarFramerUrl(), b.getAvatarFramerUrl())
+                && equals(a.getTitleId(), b.getTitleId());
+    }
+
+    /**
+     * 返回相等字符串的共享实例
+     */
+    private String pooled(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = valuePool.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (valuePool.size() >= MAX_POOLED_VALUES) {
+            return value;
+        }
+        existing = valuePool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 当前实例和已合并记录中最新的时间戳
+     */
+    private static class Entry {
+        private final FishChatService.Sender sender;
+        private final long updatedAt;
+
+        private Entry(FishChatService.Sender sender, long updatedAt) {
+            this.sender = sender;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.yuyuanweb.mianshiyaplugin.service;
 
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+import com.github.yuyuanweb.mianshiyaplugin.utils.ChatMarkupTokenizer;
+import com.github.yuyuanweb.mianshiyaplugin.utils.ThrottledLogger;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -7,6 +10,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.intellij.openapi.diagnostic.Logger;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -15,13 +19,20 @@ import java.net.http.HttpResponse;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 摸鱼室聊天服务
@@ -29,12 +40,22 @@ import java.util.function.Consumer;
  */
 public class FishChatService {
     private static final Logger LOG = Logger.getInstance(FishChatService.class);
+    // 每帧、每条记录都会执行的日志使用延迟生成和限流
+    private static final ThrottledLogger HOT_LOG = ThrottledLogger.getInstance(FishChatService.class);
+    private static final long LOG_INTERVAL_MS = 60_000L;
     private static final String API_BASE_URL = "https://api.yucoder.cn";
     private static final String WS_URL = "wss://api.yucoder.cn/ws/";
     
     private final String token;
     private WebSocket webSocket;
     private final Gson gson = new Gson();
+    // 发送者注册表，同一用户的所有消息共享一个发送者实例
+    private final ChatSenderRegistry senderRegistry = new ChatSenderRegistry();
+    // 已发送、等待服务器回显的本地消息，键为客户端消息ID
+    private static final long PENDING_SEND_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private final Map<String, PendingSend> pendingSends = new ConcurrentHashMap<>();
+    private final AtomicLong deliveryCount = new AtomicLong();
+    private final AtomicLong deliveryTotalMs = new AtomicLong();
     private UserInfo userInfo;
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
     private final List<Consumer<ChatMessage>> messageListeners = new ArrayList<>();
@@ -43,13 +64,24 @@ public class FishChatService {
     private final List<Runnable> connectedListeners = new ArrayList<>();
     private final List<Consumer<String>> errorListeners = new ArrayList<>();
     private final List<Runnable> closeListeners = new ArrayList<>();
+    private final List<Consumer<String>> sendFailedListeners = new ArrayList<>();
     private boolean isConnected = false;
     private Thread keepAliveThread;
+    // 帧编解码器，连接时按协商结果确定
+    private volatile ChatFrameCodec codec = JsonChatFrameCodec.INSTANCE;
+    private boolean binaryFramesEnabled = false;
     
     public FishChatService(String token) {
         this.token = token;
     }
     
+    /**
+     * 是否向服务器提议使用二进制帧，服务器不支持时仍使用 JSON 文本帧
+     */
+    public void setBinaryFramesEnabled(boolean binaryFramesEnabled) {
+        this.binaryFramesEnabled = binaryFramesEnabled;
+    }
+    
     /**
      * 连接到聊天服务器
      */
@@ -64,7 +96,11 @@ public class FishChatService {
             
             // 创建WebSocket连接
             HttpClient client = HttpClient.newHttpClient();
-            CompletableFuture<WebSocket> webSocketFuture = client.newWebSocketBuilder()
+            WebSocket.Builder builder = client.newWebSocketBuilder();
+            if (binaryFramesEnabled) {
+                builder.subprotocols(BinaryChatFrameCodec.SUBPROTOCOL);
+            }
+            CompletableFuture<WebSocket> webSocketFuture = builder
                     .connectTimeout(Duration.ofSeconds(20))
                     .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/136.0.0.0 Safari/537.36")
                     .header("Origin", "https://yucoder.cn")
@@ -74,11 +110,13 @@ public class FishChatService {
                     .buildAsync(URI.create(WS_URL + "?token=" + token), new WebSocketListener());
             
             webSocket = webSocketFuture.join();
+            codec = ChatFrameCodec.forSubprotocol(webSocket.getSubprotocol());
+            LOG.info("WebSocket帧编码: " + (codec.getSubprotocol() != null ? codec.getSubprotocol() : "json"));
             
             // 发送激活消息
             JsonObject activateMsg = new JsonObject();
             activateMsg.addProperty("type", 1);
-            webSocket.sendText(gson.toJson(activateMsg), true);
+            codec.send(webSocket, activateMsg);
             
             // 开始心跳保活
             startKeepAlive();
@@ -113,16 +151,18 @@ public class FishChatService {
     
     /**
      * 发送消息
+     * @return 本地消息副本（等待服务器回显确认），发送失败时返回 null
      */
-    public void sendMessage(String content) {
+    public ChatMessage sendMessage(String content) {
         if (!isConnected || webSocket == null) {
             notifyError("未连接到服务器");
-            return;
+            return null;
         }
         
         try {
-            // 生成消息ID
-            String messageId = String.valueOf(System.currentTimeMillis());
+            // 生成客户端消息ID，服务器回显时按该ID对账
+            String messageId = UUID.randomUUID().toString();
+            String timestamp = String.valueOf(System.currentTimeMillis());
             
             // 构建消息对象
             JsonObject messageObj = new JsonObject();
@@ -151,7 +191,7 @@ public class FishChatService {
             senderObj.addProperty("titleId", userInfo.getTitleId());
             
             messageContentObj.add("sender", senderObj);
-            messageContentObj.addProperty("timestamp", String.valueOf(System.currentTimeMillis()));
+            messageContentObj.addProperty("timestamp", timestamp);
             messageContentObj.addProperty("region", "未知");
             messageContentObj.addProperty("country", "未知");
             
@@ -159,49 +199,120 @@ public class FishChatService {
             dataObj.add("content", contentObj);
             messageObj.add("data", dataObj);
             
-            // 发送消息
-            String messageJson = gson.toJson(messageObj);
-            webSocket.sendText(messageJson, true);
+            // 本地副本，地区和国家未知，注册表不会用占位值覆盖已有的信息
+            Sender sender = new Sender();
+            sender.setId(userInfo.getId());
+            sender.setName(userInfo.getUserName());
+            sender.setAvatar(userInfo.getUserAvatar());
+            sender.setLevel(userInfo.getLevel());
+            sender.setPoints(userInfo.getPoints());
+            sender.setAdmin("admin".equals(userInfo.getUserRole()));
+            sender.setRegion("未知");
+            sender.setCountry("未知");
+            sender.setAvatarFramerUrl(userInfo.getAvatarFramerUrl());
+            sender.setTitleId(userInfo.getTitleId());
+            ChatMessage localMessage = new ChatMessage();
+            localMessage.setId(messageId);
+            localMessage.setContent(content);
+            localMessage.setTimestamp(timestamp);
+            localMessage.setSender(senderRegistry.canonicalize(sender, Long.parseLong(timestamp)));
+            localMessage.pending = true;
+            
+            // 先登记再发送，保证回显到达时能找到对应的本地消息；超时仍未回显时视为发送失败
+            pendingSends.put(messageId, new PendingSend(content, System.nanoTime()));
+            CompletableFuture.runAsync(() -> failPendingSend(messageId),
+                    CompletableFuture.delayedExecutor(PENDING_SEND_TIMEOUT_NANOS, TimeUnit.NANOSECONDS));
             
+            // 发送消息
+            codec.send(webSocket, messageObj).exceptionally(e -> {
+                LOG.warn("发送消息失败: " + e.getMessage());
+                failPendingSend(messageId);
+                return null;
+            });
+            return localMessage;
         } catch (Exception e) {
             LOG.error("发送消息失败: " + e.getMessage(), e);
             notifyError("发送消息失败: " + e.getMessage());
+            return null;
         }
     }
     
     /**
-     * 获取用户信息
+     * 与已发送的本地消息对账：按消息ID匹配，服务器改写了ID时按发送者和内容匹配。
+     * 匹配成功时记录送达耗时，并把本地消息ID写入 clientId
      */
-    private void fetchUserInfo() throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(API_BASE_URL + "/api/user/get/login"))
-                .header("accept", "*/*")
-                .header("fish-dog-token", token)
-                .header("User-Agent", "YuCoder-IDEA-Plugin")
-                .header("Origin", "https://yucoder.cn")
-                .header("Referer", "https://yucoder.cn/")
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        String responseBody = response.body();
+    private void reconcilePendingSend(ChatMessage message) {
+        if (pendingSends.isEmpty()) {
+            return;
+        }
+        String clientId = message.getId();
+        PendingSend pending = clientId != null ? pendingSends.remove(clientId) : null;
+        if (pending == null) {
+            Sender sender = message.getSender();
+            if (sender == null || userInfo == null || sender.getId() == null || !sender.getId().equals(userInfo.getId())) {
+                return;
+            }
+            for (Map.Entry<String, PendingSend> entry : pendingSends.entrySet()) {
+                if (entry.getValue().content.equals(message.getContent()) && pendingSends.remove(entry.getKey(), entry.getValue())) {
+                    clientId = entry.getKey();
+                    pending = entry.getValue();
+                    break;
+                }
+            }
+            if (pending == null) {
+                return;
+            }
+        }
+        long latencyMs = (System.nanoTime() - pending.sentNanos) / 1_000_000L;
+        message.clientId = clientId;
+        message.deliveryLatencyMs = latencyMs;
+        deliveryCount.incrementAndGet();
+        deliveryTotalMs.addAndGet(latencyMs);
+        HOT_LOG.debug(() -> "消息送达耗时: " + latencyMs + "ms");
+    }
+    
+    /**
+     * 发送失败或超时未收到回显时丢弃本地消息，并通知发送失败监听器；已对账的消息不做任何事
+     */
+    private void failPendingSend(String messageId) {
+        if (pendingSends.remove(messageId) != null) {
+            notifySendFailed(messageId);
+        }
+    }
+    
+    /**
+     * 平均送达耗时（毫秒），还没有送达记录时返回 -1
+     */
+    public long getAverageDeliveryLatencyMs() {
+        long count = deliveryCount.get();
+        return count == 0 ? -1 : deliveryTotalMs.get() / count;
+    }
+    
+    /**
+     * 等待服务器回显的本地消息
+     */
+    private static class PendingSend {
+        private final String content;
+        private final long sentNanos;
         
-        JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-        if (jsonResponse.has("code") && jsonResponse.get("code").getAsInt() == 0 && jsonResponse.has("data")) {
-            userInfo = gson.fromJson(jsonResponse.get("data"), UserInfo.class);
-        } else {
-            throw new Exception("TOKEN_INVALID");
+        PendingSend(String content, long sentNanos) {
+            this.content = content;
+            this.sentNanos = sentNanos;
         }
     }
     
+    /**
+     * 获取用户信息，优先使用缓存，过期的缓存在后台刷新
+     */
+    private void fetchUserInfo() throws Exception {
+        userInfo = ProfileService.getInstance().getFishUserInfo(token);
+    }
+    
     /**
      * 处理消息
      */
-    private void handleMessage(String message) {
+    private void handleMessage(JsonObject jsonMessage) {
         try {
-            JsonObject jsonMessage = gson.fromJson(message, JsonObject.class);
-            
             // 获取type，可能是数字或字符串
             JsonElement typeElement = jsonMessage.get("type");
             String typeString = null;
@@ -222,7 +333,7 @@ public class FishChatService {
                 // 处理数字类型的消息
                 switch (typeInt) {
                     case 1: // 连接确认
-                        LOG.info("收到连接确认消息");
+                        HOT_LOG.debug(() -> "收到连接确认消息");
                         break;
                     case 2: // 聊天消息
                         if (jsonMessage.has("data")) {
@@ -254,7 +365,8 @@ public class FishChatService {
                         }
                         break;
                     default:
-                        LOG.info("收到未知类型消息: type=" + typeInt);
+                        int unknownType = typeInt;
+                        HOT_LOG.info("unknownType", LOG_INTERVAL_MS, () -> "收到未知类型消息: type=" + unknownType);
                         break;
                 }
             } else if (typeString != null) {
@@ -274,7 +386,7 @@ public class FishChatService {
                         break;
                     case "userOnline":
                         // 处理用户上线消息
-                        LOG.info("收到用户上线消息");
+                        HOT_LOG.debug(() -> "收到用户上线消息");
                         if (jsonMessage.has("data") && jsonMessage.get("data").isJsonArray()) {
                             List<OnlineUser> users = new ArrayList<>();
                             JsonArray usersArray = jsonMessage.getAsJsonArray("data");
@@ -289,7 +401,7 @@ public class FishChatService {
                         break;
                     case "userOffline":
                         // 处理用户下线消息
-                        LOG.info("收到用户下线消息");
+                        HOT_LOG.debug(() -> "收到用户下线消息");
                         if (jsonMessage.has("data") && jsonMessage.get("data").isJsonPrimitive()) {
                             String userId = jsonMessage.get("data").getAsString();
                             notifyUserOffline(userId);
@@ -297,15 +409,16 @@ public class FishChatService {
                         break;
                     case "userMessageRevoke":
                         // 处理消息撤回，暂时忽略
-                        LOG.info("收到消息撤回通知");
+                        HOT_LOG.debug(() -> "收到消息撤回通知");
                         break;
                     default:
-                        LOG.info("收到未知类型字符串消息: type=" + typeString);
+                        String unknownTypeString = typeString;
+                        HOT_LOG.info("unknownTypeString", LOG_INTERVAL_MS, () -> "收到未知类型字符串消息: type=" + unknownTypeString);
                         break;
                 }
             }
         } catch (Exception e) {
-            LOG.error("处理消息失败: " + e.getMessage(), e);
+            HOT_LOG.warn("handleMessage", LOG_INTERVAL_MS, () -> "处理消息失败: " + e.getMessage(), e);
         }
     }
     
@@ -351,8 +464,8 @@ public class FishChatService {
                     // 发送心跳包
                     JsonObject heartbeat = new JsonObject();
                     heartbeat.addProperty("type", 4);
-                    webSocket.sendText(gson.toJson(heartbeat), true);
-                    LOG.info("发送心跳保活");
+                    codec.send(webSocket, heartbeat);
+                    HOT_LOG.debug(() -> "发送心跳保活");
                     
                     // 每25秒发送一次心跳
                     Thread.sleep(25000);
@@ -384,6 +497,7 @@ public class FishChatService {
      */
     private class WebSocketListener implements WebSocket.Listener {
         private final StringBuilder messageBuffer = new StringBuilder();
+        private final ByteArrayOutputStream binaryBuffer = new ByteArrayOutputStream();
         
         @Override
         public void onOpen(WebSocket webSocket) {
@@ -398,16 +512,38 @@ public class FishChatService {
                 String fullMessage = messageBuffer.toString();
                 messageBuffer.setLength(0);
                 
-                executorService.submit(() -> handleMessage(fullMessage));
+                executorService.submit(() -> decodeAndHandle(() -> codec.decodeText(fullMessage)));
             }
             return WebSocket.Listener.super.onText(webSocket, data, last);
         }
         
         @Override
         public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            binaryBuffer.write(chunk, 0, chunk.length);
+            if (last) {
+                ByteBuffer fullMessage = ByteBuffer.wrap(binaryBuffer.toByteArray());
+                binaryBuffer.reset();
+                
+                executorService.submit(() -> decodeAndHandle(() -> codec.decodeBinary(fullMessage)));
+            }
             return WebSocket.Listener.super.onBinary(webSocket, data, last);
         }
         
+        private void decodeAndHandle(Supplier<JsonObject> decoder) {
+            JsonObject frame;
+            try {
+                frame = decoder.get();
+            } catch (Exception e) {
+                HOT_LOG.warn("decodeFrame", LOG_INTERVAL_MS, () -> "解码消息失败: " + e.getMessage(), e);
+                return;
+            }
+            if (frame != null) {
+                handleMessage(frame);
+            }
+        }
+        
         @Override
         public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
             LOG.info("WebSocket连接已关闭: " + statusCode + " " + reason);
@@ -467,16 +603,26 @@ public class FishChatService {
         closeListeners.add(listener);
     }
     
+    /**
+     * 添加发送失败监听器，参数为本地消息ID，在后台线程回调
+     * 发送出错或一分钟内没有收到服务器回显时通知
+     */
+    public void addSendFailedListener(Consumer<String> listener) {
+        sendFailedListeners.add(listener);
+    }
+    
     /**
      * 通知收到消息
      */
     private void notifyMessageReceived(ChatMessage message) {
         if (message != null) {
+            message.setSender(senderRegistry.canonicalize(message.getSender(), message.getEpochMillis()));
+            reconcilePendingSend(message);
             for (Consumer<ChatMessage> listener : messageListeners) {
                 try {
                     listener.accept(message);
                 } catch (Exception e) {
-                    LOG.error("通知消息接收失败: " + e.getMessage(), e);
+                    HOT_LOG.warn("notifyMessage", LOG_INTERVAL_MS, () -> "通知消息接收失败: " + e.getMessage(), e);
                 }
             }
         }
@@ -534,6 +680,19 @@ public class FishChatService {
         }
     }
     
+    /**
+     * 通知发送失败
+     */
+    private void notifySendFailed(String messageId) {
+        for (Consumer<String> listener : sendFailedListeners) {
+            try {
+                listener.accept(messageId);
+            } catch (Exception e) {
+                LOG.error("通知消息发送失败时出错: " + e.getMessage(), e);
+            }
+        }
+    }
+    
     /**
      * 通知错误
      */
@@ -571,7 +730,7 @@ public class FishChatService {
             pageSize = 50;
         }
         
-        LOG.info("开始获取历史消息，pageSize=" + pageSize);
+        HOT_LOG.debug(() -> "开始获取历史消息，pageSize=" + pageSize);
         List<ChatMessage> messages = new ArrayList<>();
         HttpClient client = HttpClient.newHttpClient();
         
@@ -584,7 +743,7 @@ public class FishChatService {
         requestBody.addProperty("sortOrder", "desc");  // 按时间降序排序，最新的在前面
         
         String requestBodyStr = gson.toJson(requestBody);
-        LOG.info("请求体: " + requestBodyStr);
+        HOT_LOG.debug(() -> "请求体: " + requestBodyStr);
         
         // 发送请求
         HttpRequest request = HttpRequest.newBuilder()
@@ -599,23 +758,20 @@ public class FishChatService {
                 .POST(HttpRequest.BodyPublishers.ofString(requestBodyStr))
                 .build();
                 
-        LOG.info("发送历史消息请求...");
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
         String responseBody = response.body();
-        LOG.info("收到历史消息响应: " + (responseBody.length() > 100 ? responseBody.substring(0, 100) + "..." : responseBody));
+        HOT_LOG.debug(() -> "收到历史消息响应: " + (responseBody.length() > 100 ? responseBody.substring(0, 100) + "..." : responseBody));
         
         JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
         if (jsonResponse.has("code") && jsonResponse.get("code").getAsInt() == 0 && jsonResponse.has("data")) {
-            LOG.info("响应码正确，开始解析数据");
             JsonObject data = jsonResponse.getAsJsonObject("data");
             if (data.has("records") && data.get("records").isJsonArray()) {
                 JsonArray records = data.getAsJsonArray("records");
-                LOG.info("获取到 " + records.size() + " 条历史消息");
+                HOT_LOG.debug(() -> "获取到 " + records.size() + " 条历史消息");
                 
                 for (JsonElement element : records) {
                     try {
                         JsonObject messageObj = element.getAsJsonObject();
-                        LOG.info("处理消息对象: " + messageObj);
                         
                         // 检查是否有messageWrapper字段
                         if (messageObj.has("messageWrapper") && !messageObj.get("messageWrapper").isJsonNull()) {
@@ -677,10 +833,11 @@ public class FishChatService {
                                         sender.setTitleId(senderObj.get("titleId").getAsString());
                                     }
                                     
-                                    chatMessage.setSender(sender);
+                                    chatMessage.setSender(senderRegistry.canonicalize(sender, chatMessage.getEpochMillis()));
                                     messages.add(chatMessage);
-                                    LOG.info("成功解析messageWrapper消息: " + chatMessage.getId() + " - " + chatMessage.getSender().getName() + " - " + 
-                                            (chatMessage.getContent().length() > 20 ? chatMessage.getContent().substring(0, 20) + "..." : chatMessage.getContent()));
+                                    if (HOT_LOG.isDebugEnabled()) {
+                                        HOT_LOG.debug(() -> "成功解析messageWrapper消息: " + chatMessage.getId() + " - " + chatMessage.getSender().getName());
+                                    }
                                 }
                             }
                         } else {
@@ -692,7 +849,7 @@ public class FishChatService {
                             if (messageObj.has("content")) {
                                 chatMessage.setContent(messageObj.get("content").getAsString());
                             } else {
-                                LOG.warn("消息没有content字段，跳过");
+                                HOT_LOG.info("historyNoContent", LOG_INTERVAL_MS, () -> "消息没有content字段，跳过");
                                 continue;
                             }
                             
@@ -741,16 +898,17 @@ public class FishChatService {
                                     sender.setTitleId(userObj.get("titleId").getAsString());
                                 }
                                 
-                                chatMessage.setSender(sender);
+                                chatMessage.setSender(senderRegistry.canonicalize(sender, chatMessage.getEpochMillis()));
                                 messages.add(chatMessage);
-                                LOG.info("成功解析旧格式消息: " + chatMessage.getId() + " - " + chatMessage.getSender().getName());
+                                if (HOT_LOG.isDebugEnabled()) {
+                                    HOT_LOG.debug(() -> "成功解析旧格式消息: " + chatMessage.getId() + " - " + chatMessage.getSender().getName());
+                                }
                             } else {
-                                LOG.warn("消息没有用户信息，跳过");
+                                HOT_LOG.info("historyNoUser", LOG_INTERVAL_MS, () -> "消息没有用户信息，跳过");
                             }
                         }
                     } catch (Exception e) {
-                        LOG.warn("解析历史消息失败: " + e.getMessage(), e);
-                        e.printStackTrace();
+                        HOT_LOG.warn("parseHistory", LOG_INTERVAL_MS, () -> "解析历史消息失败: " + e.getMessage(), e);
                     }
                 }
             } else {
@@ -761,7 +919,11 @@ public class FishChatService {
             throw new Exception("获取历史消息失败: " + (jsonResponse.has("message") ? jsonResponse.get("message").getAsString() : "未知错误"));
         }
         
-        LOG.info("历史消息获取完成，共 " + messages.size() + " 条消息");
+        // 历史中已有的本地消息视为已送达，界面按 clientId 替换待确认的卡片
+        for (ChatMessage message : messages) {
+            reconcilePendingSend(message);
+        }
+        HOT_LOG.debug(() -> "历史消息获取完成，共 " + messages.size() + " 条消息");
         return messages;
     }
     
@@ -773,6 +935,14 @@ public class FishChatService {
         private String content;
         private Sender sender;
         private String timestamp;
+        // 解析后的内容，首次使用时生成并缓存，不参与序列化
+        private transient ChatContent parsedContent;
+        // 本地发送、尚未收到服务器回显
+        private transient boolean pending;
+        // 服务器回显对应的本地消息ID，非自己发送的消息为 null
+        private transient String clientId;
+        // 从发送到收到回显的耗时（毫秒），非自己发送的消息为 -1
+        private transient long deliveryLatencyMs = -1;
         
         public String getId() {
             return id;
@@ -782,20 +952,69 @@ public class FishChatService {
             return content;
         }
         
+        /**
+         * 获取解析后的消息内容
+         */
+        public ChatContent getParsedContent() {
+            ChatContent parsed = parsedContent;
+            if (parsed == null) {
+                parsed = ChatMarkupTokenizer.tokenize(content);
+                parsedContent = parsed;
+            }
+            return parsed;
+        }
+        
         public Sender getSender() {
             return sender;
         }
         
+        /**
+         * 是否为等待服务器确认的本地消息
+         */
+        public boolean isPending() {
+            return pending;
+        }
+        
+        /**
+         * 服务器回显对应的本地消息ID
+         */
+        public String getClientId() {
+            return clientId;
+        }
+        
+        /**
+         * 送达耗时（毫秒），未知时为 -1
+         */
+        public long getDeliveryLatencyMs() {
+            return deliveryLatencyMs;
+        }
+        
         public String getTimestamp() {
             return timestamp;
         }
         
+        /**
+         * 毫秒时间戳，支持毫秒时间戳和ISO 8601格式，解析失败时使用当前时间
+         */
+        public long getEpochMillis() {
+            try {
+                if (timestamp.contains("T") && timestamp.contains("Z")) {
+                    // ISO 8601格式，如: 2025-06-27T03:33:00.750Z
+                    return Instant.parse(timestamp).toEpochMilli();
+                }
+                return Long.parseLong(timestamp);
+            } catch (Exception e) {
+                return System.currentTimeMillis();
+            }
+        }
+        
         public void setId(String id) {
             this.id = id;
         }
         
         public void setContent(String content) {
             this.content = content;
+            this.parsedContent = null;
         }
         
         public void setSender(Sender sender) {
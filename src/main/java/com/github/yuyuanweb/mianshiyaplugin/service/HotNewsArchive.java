@@ -0,0 +1,570 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 热榜历史归档
+ * 每次热榜变化时追加一个快照块，块内按列存储（标题编号、平台编号、排名、关注数），快照时间每块一个；
+ * 标题和平台名只在首次出现时写入一次，之后用编号引用。每块单独压缩，追加时无需重写文件。
+ * 超过保留期时，或块数、文件大小达到上限时重写文件，只保留最近的快照；达到上限时删减到上限的四分之三，
+ * 之后的数百次刷新都只需追加。
+ * 排名变化在每次追加后生成不可变的副本发布，界面读取时不需要加锁。
+ * <pre>
+ * 文件 = 魔数 版本 { 块长度 压缩块 }
+ * 块   = 时间 新平台数 {平台名} 新标题数 {标题} 行数 {标题编号} {平台编号} {排名} {关注数}
+ * </pre>
+ */
+public class HotNewsArchive {
+
+    private static final Logger LOG = Logger.getInstance(HotNewsArchive.class);
+    private static final int MAGIC = 0x46484E41;
+    private static final byte VERSION = 1;
+    private static final long RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+    /**
+     * 保留的快照块上限，超过时重写文件
+     */
+    private static final int MAX_BLOCKS = 2000;
+    /**
+     * 压缩后的块总大小上限
+     */
+    private static final long MAX_BYTES = 8L * 1024 * 1024;
+    /**
+     * 达到上限时删减到的块数和大小
+     */
+    private static final int COMPACT_BLOCKS = MAX_BLOCKS * 3 / 4;
+    private static final long COMPACT_BYTES = MAX_BYTES * 3 / 4;
+    /**
+     * 每个条目保留的最近排名数，用于绘制趋势图
+     */
+    public static final int SPARKLINE_LENGTH = 12;
+
+    private final Path file;
+    private final List<String> platforms = new ArrayList<>();
+    private final Map<String, Integer> platformIds = new HashMap<>();
+    private final List<String> titles = new ArrayList<>();
+    private final Map<String, Integer> titleIds = new HashMap<>();
+    /**
+     * 各条目的排名轨迹，键为平台编号和标题编号
+     */
+    private final Map<Long, Track> tracks = new HashMap<>();
+    private int sequence;
+    private int blockCount;
+    private long storedBytes;
+    private boolean loaded;
+    /**
+     * 最近一次快照中各条目的排名变化，键为平台名和标题，每次追加后整体替换
+     */
+    private volatile Map<String, Map<String, Trend>> latestTrends = Collections.emptyMap();
+
+    public HotNewsArchive() {
+        this(Paths.get(PathManager.getSystemPath(), "fish-island", "hot-news.archive"));
+    }
+
+    public HotNewsArchive(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 读取归档并重建排名轨迹，过期的快照被丢弃并重写文件
+     * 会读写磁盘，不要在EDT上调用
+     */
+    public synchronized void load() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        boolean damaged = readSnapshots(snapshots);
+        long cutoff = System.currentTimeMillis() - RETENTION_MS;
+        long bytes = 0;
+        for (Snapshot snapshot : snapshots) {
+            bytes += snapshot.storedSize;
+        }
+        boolean full = snapshots.size() >= MAX_BLOCKS || bytes >= MAX_BYTES;
+        int keepBlocks = full ? COMPACT_BLOCKS : MAX_BLOCKS;
+        long keepBytes = full ? COMPACT_BYTES : MAX_BYTES;
+        int first = 0;
+        while (first < snapshots.size() && (snapshots.size() - first > keepBlocks
+                || bytes > keepBytes || snapshots.get(first).time < cutoff)) {
+            bytes -= snapshots.get(first).storedSize;
+            first++;
+        }
+        List<Snapshot> retained = snapshots.subList(first, snapshots.size());
+
+        if (damaged || first > 0) {
+            // 用独立的字典编码删减后的快照，文件替换成功后才切换内存中的字典
+            HotNewsArchive compacted = new HotNewsArchive(file);
+            ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+            for (Snapshot snapshot : retained) {
+                writeBlock(rewritten, compacted.apply(snapshot));
+            }
+            if (!replaceFile(rewritten.toByteArray())) {
+                // 文件未被替换，按文件中的全部快照重建，之后追加的块与文件使用相同的编号
+                retained = snapshots;
+            }
+        }
+        reset();
+        for (Snapshot snapshot : retained) {
+            apply(snapshot);
+        }
+        loaded = true;
+        publishTrends();
+    }
+
+    /**
+     * 追加一次热榜快照，没有任何条目的快照不记录
+     * 会写磁盘，不要在EDT上调用
+     */
+    public synchronized void append(Map<String, List<HotNews>> categoryNews, long time) {
+        Snapshot snapshot = Snapshot.of(categoryNews, time);
+        if (snapshot.ranks.length == 0) {
+            return;
+        }
+        if (!loaded) {
+            load();
+        }
+        if (blockCount >= MAX_BLOCKS || storedBytes >= MAX_BYTES) {
+            load();
+        }
+        byte[] block = apply(snapshot);
+        publishTrends();
+        try {
+            Files.createDirectories(file.getParent());
+            boolean exists = Files.exists(file);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (!exists) {
+                    writeHeader(out);
+                }
+                writeBlock(out, block);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to append hot news archive", e);
+        }
+    }
+
+    /**
+     * 条目在最近一次快照中的排名变化、在榜时长和最近的排名
+     * 读取已发布的副本，不加锁，可在EDT上调用
+     * @return 条目不在最近一次快照中时返回 null
+     */
+    public Trend trendOf(HotNews news) {
+        Map<String, Trend> platformTrends = latestTrends.get(news.getTypeName());
+        return platformTrends == null ? null : platformTrends.get(news.getTitle());
+    }
+
+    /**
+     * 为最近一次快照中的条目生成排名变化并整体替换，持有锁时调用
+     */
+    private void publishTrends() {
+        Map<String, Map<String, Trend>> trends = new HashMap<>();
+        for (Map.Entry<Long, Track> entry : tracks.entrySet()) {
+            Track track = entry.getValue();
+            if (track.lastSequence != sequence) {
+                continue;
+            }
+            String platform = platforms.get((int) (entry.getKey() >>> 32));
+            String title = titles.get(entry.getKey().intValue());
+            trends.computeIfAbsent(platform, k -> new HashMap<>()).put(title, track.toTrend(sequence));
+        }
+        latestTrends = trends;
+    }
+
+    private void reset() {
+        platforms.clear();
+        platformIds.clear();
+        titles.clear();
+        titleIds.clear();
+        tracks.clear();
+        sequence = 0;
+        blockCount = 0;
+        storedBytes = 0;
+    }
+
+    /**
+     * 将快照计入排名轨迹，并编码为块
+     */
+    private byte[] apply(Snapshot snapshot) {
+        sequence++;
+        blockCount++;
+        int size = snapshot.ranks.length;
+        int[] rowTitles = new int[size];
+        int[] rowPlatforms = new int[size];
+        List<String> newPlatforms = new ArrayList<>();
+        List<String> newTitles = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rowPlatforms[i] = intern(snapshot.platforms[i], platforms, platformIds, newPlatforms);
+            rowTitles[i] = intern(snapshot.titles[i], titles, titleIds, newTitles);
+            tracks.computeIfAbsent(key(rowPlatforms[i], rowTitles[i]), k -> new Track())
+                    .record(sequence, snapshot.ranks[i], snapshot.time);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * 8 + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(snapshot.time);
+            writeStrings(out, newPlatforms);
+            writeStrings(out, newTitles);
+            writeVarint(out, size);
+            for (int value : rowTitles) {
+                writeVarint(out, value);
+            }
+            for (int value : rowPlatforms) {
+                writeVarint(out, value);
+            }
+            for (int value : snapshot.ranks) {
+                writeVarint(out, value);
+            }
+            for (long value : snapshot.followerCounts) {
+                writeVarint(out, Math.max(0, value));
+            }
+        } catch (IOException e) {
+            // 写入内存流不会失败
+            throw new IllegalStateException(e);
+        }
+        byte[] block = deflate(bytes.toByteArray());
+        storedBytes += block.length + 4;
+        return block;
+    }
+
+    private static int intern(String value, List<String> values, Map<String, Integer> ids, List<String> added) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+            added.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * 读取所有快照
+     * @return 文件末尾有不完整或损坏的块时返回 true
+     */
+    private boolean readSnapshots(List<Snapshot> snapshots) {
+        List<String> fileTitles = new ArrayList<>();
+        List<String> filePlatforms = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                return true;
+            }
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return false;
+                }
+                byte[] block = new byte[length];
+                in.readFully(block);
+                Snapshot snapshot = decode(inflate(block), filePlatforms, fileTitles);
+                snapshot.storedSize = length + 4;
+                snapshots.add(snapshot);
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            LOG.warn("Hot news archive is damaged, keeping " + snapshots.size() + " snapshots", e);
+            return true;
+        }
+    }
+
+    private static Snapshot decode(byte[] block, List<String> filePlatforms, List<String> fileTitles) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(block);
+        long time = in.getLong();
+        readStrings(in, filePlatforms);
+        readStrings(in, fileTitles);
+        int size = (int) readVarint(in);
+        Snapshot snapshot = new Snapshot(time, size);
+        for (int i = 0; i < size; i++) {
+            snapshot.titles[i] = fileTitles.get((int) readVarint(in));
+        }
+        for (int i = 0; i < size; i++) {
+            snapshot.platforms[i] = filePlatforms.get((int) readVarint(in));
+        }
+        for (int i = 0; i < size; i++) {
+            snapshot.ranks[i] = (int) readVarint(in);
+        }
+        for (int i = 0; i < size; i++) {
+            snapshot.followerCounts[i] = readVarint(in);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 原子替换归档文件
+     * @return 是否已替换，失败时原文件保持不变
+     */
+    private boolean replaceFile(byte[] blocks) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writeHeader(out);
+                out.write(blocks);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to compact hot news archive", e);
+            return false;
+        }
+    }
+
+    private static void writeHeader(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.flush();
+    }
+
+    private static void writeBlock(OutputStream out, byte[] block) {
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(block.length);
+            data.write(block);
+            data.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        writeVarint(out, values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void readStrings(ByteBuffer in, List<String> values) throws IOException {
+        int count = (int) readVarint(in);
+        for (int i = 0; i < count; i++) {
+            int length = (int) readVarint(in);
+            if (length > in.remaining()) {
+                throw new IOException("String exceeds block");
+            }
+            values.add(new String(in.array(), in.position(), length, StandardCharsets.UTF_8));
+            in.position(in.position() + length);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated block");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long key(int platformId, int titleId) {
+        return (long) platformId << 32 | titleId;
+    }
+
+    /**
+     * 一次快照的按列数据
+     */
+    private static class Snapshot {
+        private final long time;
+        private final String[] titles;
+        private final String[] platforms;
+        private final int[] ranks;
+        private final long[] followerCounts;
+        private int storedSize;
+
+        private Snapshot(long time, int size) {
+            this.time = time;
+            this.titles = new String[size];
+            this.platforms = new String[size];
+            this.ranks = new int[size];
+            this.followerCounts = new long[size];
+        }
+
+        private static Snapshot of(Map<String, List<HotNews>> categoryNews, long time) {
+            int size = 0;
+            for (List<HotNews> newsList : categoryNews.values()) {
+                size += newsList.size();
+            }
+            Snapshot snapshot = new Snapshot(time, size);
+            int row = 0;
+            for (Map.Entry<String, List<HotNews>> entry : categoryNews.entrySet()) {
+                int rank = 1;
+                for (HotNews news : entry.getValue()) {
+                    snapshot.platforms[row] = entry.getKey() == null ? "" : entry.getKey();
+                    snapshot.titles[row] = news.getTitle() == null ? "" : news.getTitle();
+                    snapshot.ranks[row] = rank++;
+                    snapshot.followerCounts[row] = news.getFollowerCount();
+                    row++;
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 一个条目的排名轨迹
+     */
+    private static class Track {
+        private final int[] recentRanks = new int[SPARKLINE_LENGTH];
+        private int recentCount;
+        private int lastSequence;
+        private int lastRank;
+        private int previousRank;
+        private long runStart;
+
+        private void record(int sequence, int rank, long time) {
+            // 同一平台的热榜中重复出现的标题只取排名靠前的一次
+            if (sequence == lastSequence) {
+                return;
+            }
+            int gap = sequence - lastSequence;
+            if (lastSequence > 0 && gap == 1) {
+                previousRank = lastRank;
+            } else {
+                // 首次上榜或中途下榜后重新上榜，重新计算在榜时长
+                previousRank = 0;
+                runStart = time;
+            }
+            // 不在榜的快照记为 0
+            for (int i = 1; lastSequence > 0 && i < Math.min(gap, SPARKLINE_LENGTH); i++) {
+                push(0);
+            }
+            push(rank);
+            lastSequence = sequence;
+            lastRank = rank;
+        }
+
+        private void push(int rank) {
+            if (recentCount == SPARKLINE_LENGTH) {
+                System.arraycopy(recentRanks, 1, recentRanks, 0, SPARKLINE_LENGTH - 1);
+                recentCount--;
+            }
+            recentRanks[recentCount++] = rank;
+        }
+
+        private Trend toTrend(int sequence) {
+            int[] ranks = new int[recentCount];
+            System.arraycopy(recentRanks, 0, ranks, 0, recentCount);
+            // 归档中只有一次快照时无法判断是否新上榜
+            boolean isNew = previousRank == 0 && sequence > 1;
+            return new Trend(previousRank == 0 ? 0 : previousRank - lastRank, isNew, runStart, ranks);
+        }
+    }
+
+    /**
+     * 条目的排名变化
+     */
+    public static class Trend {
+        private final int rankDelta;
+        private final boolean isNew;
+        private final long onBoardSince;
+        private final int[] recentRanks;
+
+        public Trend(int rankDelta, boolean isNew, long onBoardSince, int[] recentRanks) {
+            this.rankDelta = rankDelta;
+            this.isNew = isNew;
+            this.onBoardSince = onBoardSince;
+            this.recentRanks = recentRanks;
+        }
+
+        /**
+         * 与上一次快照相比上升的名次，下降为负数
+         */
+        public int getRankDelta() {
+            return rankDelta;
+        }
+
+        /**
+         * 上一次快照中不在榜
+         */
+        public boolean isNew() {
+            return isNew;
+        }
+
+        /**
+         * 本次连续在榜的开始时间
+         */
+        public long getOnBoardSince() {
+            return onBoardSince;
+        }
+
+        /**
+         * 最近几次快照的排名，从旧到新，0 表示不在榜
+         */
+        public int[] getRecentRanks() {
+            return recentRanks;
+        }
+    }
+}
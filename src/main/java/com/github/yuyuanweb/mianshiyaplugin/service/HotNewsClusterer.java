@@ -0,0 +1,225 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 跨平台热榜聚类
+ * 标题按双字切片计算 MinHash 签名，分段 LSH 找出候选对，签名相似度达到阈值的标题归为同一事件，过短的标题不参与聚类；
+ * 事件按各平台关注数之和排序。签名按标题缓存，每次刷新只为新出现的标题计算。
+ */
+public class HotNewsClusterer {
+
+    private static final int HASH_COUNT = 48;
+    private static final int BANDS = 24;
+    private static final int ROWS_PER_BAND = HASH_COUNT / BANDS;
+    /**
+     * 签名相同的位置占比达到此值时视为同一事件
+     */
+    private static final double SIMILARITY_THRESHOLD = 0.4;
+    /**
+     * 切片数少于此值的标题不参与聚类，过短的标题签名高度相同，会落入同一个桶
+     */
+    private static final int MIN_SHINGLES = 3;
+    /**
+     * 过短标题的签名占位，与正常签名区分
+     */
+    private static final int[] TOO_SHORT = new int[0];
+    private static final int[] SEEDS = new int[HASH_COUNT];
+
+    static {
+        int seed = 0x9E3779B9;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    /**
+     * 上次聚类时的签名，键为标题
+     */
+    private Map<String, int[]> signatures = new HashMap<>();
+
+    /**
+     * 将各平台的热榜聚类为事件
+     * @return 每个事件一条，标题和链接取关注数最高的条目，关注数为所有条目之和，按关注数从高到低排列
+     */
+    public synchronized List<HotNews> cluster(Map<String, List<HotNews>> categoryNews) {
+        List<HotNews> items = new ArrayList<>();
+        for (List<HotNews> newsList : categoryNews.values()) {
+            items.addAll(newsList);
+        }
+        int size = items.size();
+
+        // 复用上次的签名，未出现在本次热榜中的标题随旧表一起丢弃
+        Map<String, int[]> current = new HashMap<>(size * 2);
+        int[][] itemSignatures = new int[size][];
+        for (int i = 0; i < size; i++) {
+            String title = items.get(i).getTitle() == null ? "" : items.get(i).getTitle();
+            int[] signature = current.get(title);
+            if (signature == null) {
+                signature = signatures.get(title);
+                if (signature == null) {
+                    signature = signature(title);
+                }
+                current.put(title, signature);
+            }
+            itemSignatures[i] = signature;
+        }
+        signatures = current;
+
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        int[] candidates = new int[size];
+        int candidateCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (itemSignatures[i] != TOO_SHORT) {
+                candidates[candidateCount++] = i;
+            }
+        }
+        // 每段签名的摘要放在高32位、条目下标放在低32位，排序后摘要相同的条目相邻，再比较完整签名
+        long[] keys = new long[candidateCount];
+        for (int band = 0; band < BANDS; band++) {
+            for (int k = 0; k < candidateCount; k++) {
+                int i = candidates[k];
+                int hash = band;
+                for (int row = 0; row < ROWS_PER_BAND; row++) {
+                    hash = hash * 31 + itemSignatures[i][band * ROWS_PER_BAND + row];
+                }
+                keys[k] = (long) hash << 32 | i;
+            }
+            Arrays.sort(keys);
+            int start = 0;
+            for (int end = 1; end <= candidateCount; end++) {
+                if (end < candidateCount && keys[end] >>> 32 == keys[start] >>> 32) {
+                    continue;
+                }
+                // 桶内成员只与第一个成员比较，比较次数与桶大小成正比；与第一个成员不相似的成员对由其他分段补上
+                for (int b = start + 1; b < end; b++) {
+                    union(parent, itemSignatures, (int) keys[start], (int) keys[b]);
+                }
+                start = end;
+            }
+        }
+
+        // 大部分条目自成一类，直接使用原条目，只为多条目的事件分组
+        int[] memberCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            memberCount[find(parent, i)]++;
+        }
+        List<HotNews> clusters = new ArrayList<>(size);
+        Map<Integer, List<HotNews>> groups = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int root = find(parent, i);
+            if (memberCount[root] == 1) {
+                clusters.add(items.get(i));
+            } else {
+                groups.computeIfAbsent(root, key -> new ArrayList<>(memberCount[key])).add(items.get(i));
+            }
+        }
+        for (List<HotNews> members : groups.values()) {
+            clusters.add(toCluster(members));
+        }
+        clusters.sort((a, b) -> Long.compare(b.getFollowerCount(), a.getFollowerCount()));
+        return clusters;
+    }
+
+    private static HotNews toCluster(List<HotNews> members) {
+        HotNews top = members.get(0);
+        long total = 0;
+        Set<String> platforms = new LinkedHashSet<>();
+        for (HotNews news : members) {
+            total += news.getFollowerCount();
+            if (news.getFollowerCount() > top.getFollowerCount()) {
+                top = news;
+            }
+            if (news.getTypeName() != null) {
+                platforms.add(news.getTypeName());
+            }
+        }
+        HotNews cluster = new HotNews();
+        String platformNames = String.join(" · ", platforms);
+        cluster.setTitle(platforms.size() > 1 ? top.getTitle() + "（" + platformNames + "）" : top.getTitle());
+        cluster.setUrl(top.getUrl());
+        cluster.setFollowerCount(total);
+        cluster.setTypeName(platformNames);
+        return cluster;
+    }
+
+    /**
+     * 标题去掉空白和标点、转为小写后按相邻两个字符切片，计算 MinHash 签名
+     * 切片数不足 {@link #MIN_SHINGLES} 时返回 {@link #TOO_SHORT}
+     */
+    private static int[] signature(String title) {
+        StringBuilder normalized = new StringBuilder(title.length());
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        int shingles = normalized.length() - 1;
+        if (shingles < MIN_SHINGLES) {
+            return TOO_SHORT;
+        }
+        int[] signature = new int[HASH_COUNT];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i < shingles; i++) {
+            int shingle = normalized.charAt(i) << 16 | normalized.charAt(i + 1);
+            for (int h = 0; h < HASH_COUNT; h++) {
+                int value = mix(shingle ^ SEEDS[h]);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static void union(int[] parent, int[][] itemSignatures, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB && similarity(itemSignatures[a], itemSignatures[b]) >= SIMILARITY_THRESHOLD) {
+            parent[rootB] = rootA;
+        }
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASH_COUNT;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * MurmurHash3 的 32 位收尾混合
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 热榜响应的流式解析器
+ * 直接从响应字节读取，一次遍历生成按平台分组的列表，不经过中间的响应对象和反射绑定；
+ * 平台名在多次刷新之间共用同一个字符串实例。
+ */
+public class HotNewsDecoder {
+
+    /**
+     * 平台名数量有限，超过上限后不再加入新值
+     */
+    private static final int MAX_POOLED_NAMES = 256;
+    private static final Map<String, String> NAME_POOL = new ConcurrentHashMap<>();
+
+    private HotNewsDecoder() {
+    }
+
+    /**
+     * 解析 /api/hot/list 的响应
+     * @return 平台名到热榜条目的映射，保持响应中的平台顺序
+     * @throws IOException 响应格式错误或业务状态码不为 0
+     */
+    public static Map<String, List<HotNews>> decode(byte[] body) throws IOException {
+        Map<String, List<HotNews>> categoryNews = new LinkedHashMap<>();
+        long code = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return categoryNews;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("code".equals(name) && reader.peek() == JsonToken.NUMBER) {
+                    code = reader.nextLong();
+                } else if ("data".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readCategory(reader, categoryNews);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed hot news response", e);
+        }
+        // 状态码可能出现在数据之后，读完整个响应再检查
+        if (code != 0) {
+            throw new IOException("Hot news response code: " + code);
+        }
+        return categoryNews;
+    }
+
+    private static void readCategory(JsonReader reader, Map<String, List<HotNews>> categoryNews) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        String typeName = null;
+        ArrayList<HotNews> newsList = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("typeName".equals(name) && reader.peek() == JsonToken.STRING) {
+                typeName = pooled(reader.nextString());
+            } else if ("data".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                newsList = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    HotNews news = readNews(reader);
+                    if (news != null) {
+                        newsList.add(news);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (newsList == null) {
+            return;
+        }
+        newsList.trimToSize();
+        // 平台名可能出现在条目数组之后，读完整个对象后再统一设置
+        for (HotNews news : newsList) {
+            news.setTypeName(typeName);
+        }
+        categoryNews.put(typeName, newsList);
+    }
+
+    private static HotNews readNews(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        HotNews news = new HotNews();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("title".equals(name)) {
+                news.setTitle(reader.nextString());
+            } else if ("url".equals(name)) {
+                news.setUrl(reader.nextString());
+            } else if ("followerCount".equals(name)) {
+                news.setFollowerCount(reader.nextLong());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return news;
+    }
+
+    private static String pooled(String value) {
+        String existing = NAME_POOL.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (NAME_POOL.size() >= MAX_POOLED_NAMES) {
+            return value;
+        }
+        existing = NAME_POOL.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
@@ -1,16 +1,15 @@
 package com.github.yuyuanweb.mianshiyaplugin.service;
 
 import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
-import com.github.yuyuanweb.mianshiyaplugin.model.HotNewsCategory;
-import com.github.yuyuanweb.mianshiyaplugin.model.HotNewsResponse;
-import com.google.gson.Gson;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.ArrayList;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
@@ -18,44 +17,81 @@ import java.util.LinkedHashMap;
 public class HotNewsService {
     private static final String API_URL = "https://api.yucoder.cn/api/hot/list";
     private final HttpClient httpClient;
-    private final Gson gson;
+    private final HotNewsSnapshotStore snapshotStore;
+    // 上次成功获取的 ETag 和响应内容摘要，用于判断热榜是否变化
+    private volatile String etag;
+    private volatile byte[] contentHash;
 
     public HotNewsService() {
         this.httpClient = HttpClient.newHttpClient();
-        this.gson = new Gson();
+        this.snapshotStore = new HotNewsSnapshotStore();
     }
 
-    public Map<String, List<HotNews>> fetchHotNewsByCategory() {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.noBody())
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
-                HotNewsResponse hotNewsResponse = gson.fromJson(response.body(), HotNewsResponse.class);
-                Map<String, List<HotNews>> categoryNews = new LinkedHashMap<>();
-                
-                if (hotNewsResponse != null && hotNewsResponse.getData() != null) {
-                    for (HotNewsCategory category : hotNewsResponse.getData()) {
-                        if (category.getData() != null) {
-                            List<HotNews> newsForCategory = new ArrayList<>();
-                            for (HotNews news : category.getData()) {
-                                news.setTypeName(category.getTypeName());
-                                newsForCategory.add(news);
-                            }
-                            categoryNews.put(category.getTypeName(), newsForCategory);
-                        }
-                    }
-                }
-                return categoryNews;
+    /**
+     * 读取上次保存的热榜快照，并以快照的 ETag 和摘要作为后续刷新的比较基准
+     * @return 快照中的热榜，没有快照时返回空表
+     */
+    public Map<String, List<HotNews>> loadSnapshot() {
+        HotNewsSnapshotStore.Snapshot snapshot = snapshotStore.load();
+        if (snapshot == null) {
+            return new LinkedHashMap<>();
+        }
+        if (contentHash == null) {
+            etag = snapshot.getEtag();
+            contentHash = snapshot.getContentHash();
+        }
+        return snapshot.getCategories();
+    }
+
+    /**
+     * 获取热榜
+     * @return 热榜与上次获取时相同时返回 null，调用方无需重新解析和渲染；不会返回空表
+     * @throws IOException 网络错误、服务器返回异常状态码或响应中没有热榜，此时保留上次的 ETag 和摘要
+     */
+    public Map<String, List<HotNews>> fetchHotNewsByCategory() throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.noBody());
+        String knownEtag = etag;
+        if (knownEtag != null) {
+            builder.header("If-None-Match", knownEtag);
+        }
+
+        HttpResponse<byte[]> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() == 304) {
+            return null;
+        }
+        if (response.statusCode() == 200) {
+            byte[] body = response.body();
+            String newEtag = response.headers().firstValue("ETag").orElse(null);
+            // 服务器不支持 ETag 时比较内容摘要，未变化的响应不再解析
+            byte[] newHash = sha256(body);
+            if (Arrays.equals(newHash, contentHash)) {
+                etag = newEtag;
+                return null;
+            }
+
+            Map<String, List<HotNews>> categoryNews = HotNewsDecoder.decode(body);
+            if (categoryNews.isEmpty()) {
+                throw new IOException("Hot news response contains no platforms");
             }
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
+            etag = newEtag;
+            contentHash = newHash;
+            snapshotStore.save(new HotNewsSnapshotStore.Snapshot(categoryNews, newEtag, newHash,
+                    System.currentTimeMillis()));
+            return categoryNews;
+        }
+        throw new IOException("Unexpected hot news response status: " + response.statusCode());
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Java 平台都必须支持 SHA-256
+            throw new IllegalStateException(e);
         }
-        return new LinkedHashMap<>();
     }
-} 
\ No newline at end of file
+}
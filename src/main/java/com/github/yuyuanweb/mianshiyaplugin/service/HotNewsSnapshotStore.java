@@ -0,0 +1,167 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 热榜快照的磁盘存储
+ * 保存最近一次成功获取的热榜及其 ETag 和内容摘要，IDE 重启后先显示快照再联网刷新。
+ * 文件格式为 GZIP 压缩的 DataOutput 流：
+ * <pre>
+ * 魔数 版本 获取时间 ETag 摘要长度 摘要
+ * 平台数 { 平台名 条目数 { 标题 关注数 链接 } }
+ * </pre>
+ */
+public class HotNewsSnapshotStore {
+
+    private static final Logger LOG = Logger.getInstance(HotNewsSnapshotStore.class);
+    private static final int MAGIC = 0x46484E53;
+    private static final byte VERSION = 1;
+
+    private final Path file;
+
+    public HotNewsSnapshotStore() {
+        this(Paths.get(PathManager.getSystemPath(), "fish-island", "hot-news.snapshot"));
+    }
+
+    public HotNewsSnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 读取快照，文件不存在或已损坏时返回 null
+     */
+    public Snapshot load() {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                return null;
+            }
+            long fetchedAt = in.readLong();
+            String etag = in.readUTF();
+            byte[] contentHash = new byte[in.readUnsignedShort()];
+            in.readFully(contentHash);
+            int categoryCount = in.readInt();
+            Map<String, List<HotNews>> categories = new LinkedHashMap<>();
+            for (int i = 0; i < categoryCount; i++) {
+                String typeName = in.readUTF();
+                int newsCount = in.readInt();
+                List<HotNews> newsList = new ArrayList<>(newsCount);
+                for (int j = 0; j < newsCount; j++) {
+                    HotNews news = new HotNews();
+                    news.setTitle(in.readUTF());
+                    news.setFollowerCount(in.readLong());
+                    news.setUrl(in.readUTF());
+                    news.setTypeName(typeName);
+                    newsList.add(news);
+                }
+                categories.put(typeName, newsList);
+            }
+            return new Snapshot(categories, etag.isEmpty() ? null : etag, contentHash, fetchedAt);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to load hot news snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入快照，先写临时文件再替换，避免中途失败留下损坏的文件
+     */
+    public void save(Snapshot snapshot) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(snapshot.getFetchedAt());
+                out.writeUTF(nullToEmpty(snapshot.getEtag()));
+                out.writeShort(snapshot.getContentHash().length);
+                out.write(snapshot.getContentHash());
+                out.writeInt(snapshot.getCategories().size());
+                for (Map.Entry<String, List<HotNews>> entry : snapshot.getCategories().entrySet()) {
+                    out.writeUTF(nullToEmpty(entry.getKey()));
+                    out.writeInt(entry.getValue().size());
+                    for (HotNews news : entry.getValue()) {
+                        out.writeUTF(truncate(nullToEmpty(news.getTitle())));
+                        out.writeLong(news.getFollowerCount());
+                        out.writeUTF(truncate(nullToEmpty(news.getUrl())));
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to save hot news snapshot", e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件下次保存时会被覆盖
+            }
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * writeUTF 最多写入 65535 字节，超长内容按字符截断
+     */
+    private static String truncate(String value) {
+        return value.length() > 16383 ? value.substring(0, 16383) : value;
+    }
+
+    /**
+     * 热榜快照
+     */
+    public static class Snapshot {
+        private final Map<String, List<HotNews>> categories;
+        private final String etag;
+        private final byte[] contentHash;
+        private final long fetchedAt;
+
+        public Snapshot(Map<String, List<HotNews>> categories, String etag, byte[] contentHash, long fetchedAt) {
+            this.categories = categories;
+            this.etag = etag;
+            this.contentHash = contentHash;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public Map<String, List<HotNews>> getCategories() {
+            return categories;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getContentHash() {
+            return contentHash;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+    }
+}
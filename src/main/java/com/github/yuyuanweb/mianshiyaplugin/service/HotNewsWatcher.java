@@ -0,0 +1,122 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.github.yuyuanweb.mianshiyaplugin.utils.AhoCorasickMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 热榜关注词提醒
+ * 关注词构建为 Aho-Corasick 自动机，每次刷新只扫描上次热榜中没有的标题，耗时与新标题的长度成正比，与关注词数量无关；
+ * 同一标题出现在多个平台时只匹配一次。
+ */
+public class HotNewsWatcher {
+
+    /**
+     * 提醒使用的通知组，在 plugin.xml 中注册
+     */
+    public static final String NOTIFICATION_GROUP = "摸鱼岛热榜提醒";
+
+    private List<String> terms = Collections.emptyList();
+    private AhoCorasickMatcher matcher = new AhoCorasickMatcher(Collections.emptyList());
+    /**
+     * 上次热榜中的标题，尚未扫描过时为 null
+     */
+    private Set<String> previousTitles;
+
+    /**
+     * 更新关注词，与当前关注词相同时不重新构建
+     */
+    public synchronized void setTerms(List<String> terms) {
+        if (!terms.equals(this.terms)) {
+            this.terms = new ArrayList<>(terms);
+            matcher = new AhoCorasickMatcher(this.terms);
+        }
+    }
+
+    /**
+     * 以启动时读取的快照作为上次热榜，之后只提醒快照中没有的标题
+     * 已扫描过或快照为空时不做任何事
+     */
+    public synchronized void setBaseline(Map<String, List<HotNews>> categoryNews) {
+        if (previousTitles == null) {
+            Set<String> titles = titlesOf(categoryNews);
+            if (!titles.isEmpty()) {
+                previousTitles = titles;
+            }
+        }
+    }
+
+    /**
+     * 扫描新出现的标题并记录本次热榜
+     * 没有上次热榜时所有标题都视为新出现；热榜为空时视为获取失败，不扫描也不替换上次热榜
+     * @return 包含关注词的新标题，按平台顺序排列
+     */
+    public synchronized List<Match> scan(Map<String, List<HotNews>> categoryNews) {
+        Set<String> current = titlesOf(categoryNews);
+        if (current.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> previous = previousTitles;
+        previousTitles = current;
+        if (matcher.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = new ArrayList<>();
+        Set<String> scanned = new HashSet<>();
+        for (List<HotNews> newsList : categoryNews.values()) {
+            for (HotNews news : newsList) {
+                String title = news.getTitle();
+                if (title == null || (previous != null && previous.contains(title)) || !scanned.add(title)) {
+                    continue;
+                }
+                List<String> found = matcher.findAll(title);
+                if (!found.isEmpty()) {
+                    matches.add(new Match(news, found));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> titlesOf(Map<String, List<HotNews>> categoryNews) {
+        Set<String> titles = new HashSet<>();
+        for (List<HotNews> newsList : categoryNews.values()) {
+            for (HotNews news : newsList) {
+                if (news.getTitle() != null) {
+                    titles.add(news.getTitle());
+                }
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * 包含关注词的标题
+     */
+    public static class Match {
+        private final HotNews news;
+        private final List<String> terms;
+
+        public Match(HotNews news, List<String> terms) {
+            this.news = news;
+            this.terms = terms;
+        }
+
+        public HotNews getNews() {
+            return news;
+        }
+
+        /**
+         * 标题中出现的关注词
+         */
+        public List<String> getTerms() {
+            return terms;
+        }
+    }
+}
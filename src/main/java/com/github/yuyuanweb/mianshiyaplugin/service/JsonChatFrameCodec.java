@@ -0,0 +1,45 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JSON 文本帧编解码器（默认）
+ */
+public class JsonChatFrameCodec implements ChatFrameCodec {
+
+    public static final JsonChatFrameCodec INSTANCE = new JsonChatFrameCodec();
+
+    private final Gson gson = new Gson();
+
+    private JsonChatFrameCodec() {
+    }
+
+    @Override
+    public String getSubprotocol() {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> send(WebSocket webSocket, JsonObject frame) {
+        return webSocket.sendText(gson.toJson(frame), true);
+    }
+
+    @Override
+    public JsonObject decodeText(String text) {
+        return gson.fromJson(text, JsonObject.class);
+    }
+
+    /**
+     * 二进制帧按 UTF-8 编码的 JSON 解析
+     */
+    @Override
+    public JsonObject decodeBinary(ByteBuffer data) {
+        return decodeText(StandardCharsets.UTF_8.decode(data).toString());
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.config.ApiConfig;
+import com.github.yuyuanweb.mianshiyaplugin.config.GlobalState;
+import com.github.yuyuanweb.mianshiyaplugin.model.common.BaseResponse;
+import com.github.yuyuanweb.mianshiyaplugin.model.response.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 用户资料服务
+ * 统一缓存面试鸭登录用户和摸鱼室用户信息，并持久化到 {@link GlobalState}。
+ * 缓存未过期时直接返回；过期但仍在可用期内时先返回旧值，后台重新获取，服务器返回未登录时立即清除缓存；
+ * 同一份资料同时只发起一个请求，并发调用共享结果。
+ */
+public class ProfileService {
+
+    private static final Logger LOG = Logger.getInstance(ProfileService.class);
+    private static final String FISH_USER_INFO_URL = "https://api.yucoder.cn/api/user/get/login";
+    /**
+     * 资料在此时间内视为最新
+     */
+    private static final long FRESH_MS = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * 超过此时间的资料不再使用，必须重新获取
+     */
+    private static final long MAX_STALE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long FETCH_TIMEOUT_SECONDS = 30;
+
+    private static final ProfileService INSTANCE = new ProfileService();
+
+    private final Gson gson = new Gson();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Map<String, CompletableFuture<?>> inflight = new ConcurrentHashMap<>();
+    private volatile Cached<User> loginUser;
+    private volatile Cached<FishChatService.UserInfo> fishUserInfo;
+
+    private ProfileService() {
+    }
+
+    public static ProfileService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取面试鸭当前登录用户，未登录或请求失败时返回 null
+     * 会阻塞等待网络请求，不要在EDT上调用
+     */
+    public User getLoginUser() {
+        String cookie = GlobalState.getInstance().getSavedCookie();
+        Cached<User> cached = restoreLoginUser();
+        if (cached != null && cached.key.equals(cookie) && cached.age() < MAX_STALE_MS) {
+            if (cached.age() >= FRESH_MS) {
+                fetchLoginUser(cookie);
+            }
+            return cached.value;
+        }
+        try {
+            return await(fetchLoginUser(cookie));
+        } catch (Exception e) {
+            LOG.warn("Failed to get login user", e);
+            return null;
+        }
+    }
+
+    /**
+     * 注销后清除面试鸭用户缓存
+     */
+    public void invalidateLoginUser() {
+        loginUser = null;
+        GlobalState.getInstance().saveUserFetchedAt(0);
+    }
+
+    /**
+     * 获取摸鱼室用户信息
+     * 会阻塞等待网络请求，不要在EDT上调用
+     * @throws Exception 令牌无效时异常信息为 TOKEN_INVALID
+     */
+    public FishChatService.UserInfo getFishUserInfo(String token) throws Exception {
+        String key = hash(token);
+        Cached<FishChatService.UserInfo> cached = restoreFishUserInfo();
+        if (cached != null && cached.key.equals(key) && cached.age() < MAX_STALE_MS) {
+            if (cached.age() >= FRESH_MS) {
+                fetchFishUserInfo(token, key);
+            }
+            return cached.value;
+        }
+        return await(fetchFishUserInfo(token, key));
+    }
+
+    /**
+     * 令牌失效或更换后清除摸鱼室用户信息缓存
+     */
+    public void invalidateFishUserInfo() {
+        fishUserInfo = null;
+        GlobalState.getInstance().saveFishUserInfo("", "", 0);
+    }
+
+    private CompletableFuture<User> fetchLoginUser(String cookie) {
+        return fetch("login:" + cookie, () -> {
+            BaseResponse<User> response = ApiConfig.mianShiYaApi.getLoginUser().execute().body();
+            User user = response == null ? null : response.getData();
+            if (user == null) {
+                // 未登录或登录已过期（包括返回未登录错误码），不再继续使用缓存的用户
+                Cached<User> cached = loginUser;
+                if (cached != null && cached.key.equals(cookie)) {
+                    invalidateLoginUser();
+                }
+            }
+            return user;
+        }, user -> {
+            long now = System.currentTimeMillis();
+            GlobalState globalState = GlobalState.getInstance();
+            // 请求期间登录态已变化时丢弃结果
+            if (!cookie.equals(globalState.getSavedCookie())) {
+                return;
+            }
+            loginUser = new Cached<>(cookie, user, now);
+            globalState.saveUser(user);
+            globalState.saveUserFetchedAt(now);
+        });
+    }
+
+    private CompletableFuture<FishChatService.UserInfo> fetchFishUserInfo(String token, String key) {
+        return fetch("fish:" + key, () -> {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(FISH_USER_INFO_URL))
+                    .timeout(Duration.ofSeconds(FETCH_TIMEOUT_SECONDS))
+                    .header("accept", "*/*")
+                    .header("fish-dog-token", token)
+                    .header("User-Agent", "YuCoder-IDEA-Plugin")
+                    .header("Origin", "https://yucoder.cn")
+                    .header("Referer", "https://yucoder.cn/")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            JsonObject jsonResponse = gson.fromJson(response.body(), JsonObject.class);
+            if (jsonResponse != null && jsonResponse.has("code") && jsonResponse.get("code").getAsInt() == 0
+                    && jsonResponse.has("data")) {
+                return gson.fromJson(jsonResponse.get("data"), FishChatService.UserInfo.class);
+            }
+            Cached<FishChatService.UserInfo> cached = fishUserInfo;
+            if (cached != null && cached.key.equals(key)) {
+                invalidateFishUserInfo();
+            }
+            throw new Exception("TOKEN_INVALID");
+        }, userInfo -> {
+            long now = System.currentTimeMillis();
+            fishUserInfo = new Cached<>(key, userInfo, now);
+            GlobalState.getInstance().saveFishUserInfo(key, gson.toJson(userInfo), now);
+        });
+    }
+
+    /**
+     * 在后台线程获取资料，相同键的请求合并为一个
+     * @param onSuccess 获取到非空结果时在后台线程调用，用于更新缓存
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> fetch(String key, Callable<T> fetcher, Consumer<T> onSuccess) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<?> existing = inflight.putIfAbsent(key, created);
+        if (existing != null) {
+            return (CompletableFuture<T>) existing;
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                T value = fetcher.call();
+                if (value != null) {
+                    onSuccess.accept(value);
+                }
+                created.complete(value);
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            } finally {
+                inflight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * 首次使用时从持久化状态恢复面试鸭用户
+     */
+    private Cached<User> restoreLoginUser() {
+        Cached<User> cached = loginUser;
+        if (cached == null) {
+            GlobalState globalState = GlobalState.getInstance();
+            User user = globalState.getSavedUser();
+            if (user != null) {
+                cached = new Cached<>(globalState.getSavedCookie(), user, globalState.getSavedUserFetchedAt());
+                loginUser = cached;
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * 首次使用时从持久化状态恢复摸鱼室用户信息
+     */
+    private Cached<FishChatService.UserInfo> restoreFishUserInfo() {
+        Cached<FishChatService.UserInfo> cached = fishUserInfo;
+        if (cached == null) {
+            GlobalState globalState = GlobalState.getInstance();
+            String json = globalState.getSavedFishUserInfo();
+            if (json != null && !json.isEmpty()) {
+                try {
+                    FishChatService.UserInfo userInfo = gson.fromJson(json, FishChatService.UserInfo.class);
+                    cached = new Cached<>(globalState.getSavedFishUserInfoKey(), userInfo,
+                            globalState.getSavedFishUserInfoFetchedAt());
+                    fishUserInfo = cached;
+                } catch (Exception e) {
+                    LOG.warn("Failed to restore fish user info", e);
+                }
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * 令牌不直接持久化，只保存摘要用于判断缓存是否属于当前令牌
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(token.hashCode());
+        }
+    }
+
+    /**
+     * 缓存的资料及其所属的登录态
+     */
+    private static class Cached<T> {
+        private final String key;
+        private final T value;
+        private final long fetchedAt;
+
+        private Cached(String key, T value, long fetchedAt) {
+            this.key = key == null ? "" : key;
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+        }
+
+        private long age() {
+            return System.currentTimeMillis() - fetchedAt;
+        }
+    }
+}
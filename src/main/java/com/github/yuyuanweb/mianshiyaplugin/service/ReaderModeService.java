@@ -0,0 +1,127 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.utils.ArticleExtractor;
+import com.intellij.openapi.application.ApplicationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 阅读模式服务
+ * 在后台线程下载网页并提取正文，结果按链接缓存；同一链接同时只下载一次。
+ */
+public class ReaderModeService {
+
+    private static final int CACHE_SIZE = 32;
+    /**
+     * 最多读取的网页大小，超出部分丢弃
+     */
+    private static final int MAX_PAGE_BYTES = 2 * 1024 * 1024;
+    private static final ArticleExtractor.Article NOT_READABLE = new ArticleExtractor.Article("", Collections.emptyList());
+    private static final Pattern META_CHARSET = Pattern.compile("charset\\s*=\\s*[\"']?([\\w-]+)", Pattern.CASE_INSENSITIVE);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    /**
+     * 提取结果缓存，提取失败的页面缓存为 {@link #NOT_READABLE}
+     */
+    private final Map<String, ArticleExtractor.Article> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ArticleExtractor.Article> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<String, CompletableFuture<ArticleExtractor.Article>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 获取页面正文
+     * @return 无法提取正文时结果为 null，网络错误时异常完成
+     */
+    public CompletableFuture<ArticleExtractor.Article> load(String url) {
+        synchronized (cache) {
+            ArticleExtractor.Article cached = cache.get(url);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached == NOT_READABLE ? null : cached);
+            }
+        }
+        CompletableFuture<ArticleExtractor.Article> created = new CompletableFuture<>();
+        CompletableFuture<ArticleExtractor.Article> existing = inflight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing;
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                ArticleExtractor.Article article = ArticleExtractor.extract(download(url), url);
+                synchronized (cache) {
+                    cache.put(url, article != null ? article : NOT_READABLE);
+                }
+                created.complete(article);
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            } finally {
+                inflight.remove(url, created);
+            }
+        });
+        return created;
+    }
+
+    private String download(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(15))
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/136.0.0.0 Safari/537.36")
+                .header("Accept", "text/html,application/xhtml+xml")
+                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        byte[] body;
+        try (InputStream in = response.body()) {
+            body = in.readNBytes(MAX_PAGE_BYTES);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (!contentType.isEmpty() && !contentType.toLowerCase(Locale.ROOT).contains("html")) {
+            throw new IOException("Not an HTML page: " + contentType);
+        }
+        return new String(body, detectCharset(contentType, body));
+    }
+
+    /**
+     * 依次从 Content-Type 和页面开头的 meta 标签中获取编码，默认 UTF-8
+     */
+    private static Charset detectCharset(String contentType, byte[] body) {
+        Matcher matcher = META_CHARSET.matcher(contentType);
+        if (!matcher.find()) {
+            String head = new String(body, 0, Math.min(body.length, 4096), StandardCharsets.ISO_8859_1);
+            matcher = META_CHARSET.matcher(head);
+            if (!matcher.find()) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        try {
+            return Charset.forName(matcher.group(1));
+        } catch (RuntimeException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
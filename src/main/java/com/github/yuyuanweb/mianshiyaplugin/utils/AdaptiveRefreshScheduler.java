@@ -0,0 +1,153 @@
+package com.github.yuyuanweb.mianshiyaplugin.utils;
+
+import com.intellij.ide.PowerSaveMode;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应定时刷新
+ * 任务在后台线程执行；界面不可见或处于省电模式时暂停，恢复后数据已过期则立即刷新；
+ * 失败时按指数退避重试，成功后恢复正常间隔。
+ */
+public class AdaptiveRefreshScheduler implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(AdaptiveRefreshScheduler.class);
+    private static final long MIN_RETRY_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * 刷新任务，抛出异常视为失败
+     */
+    public interface RefreshTask {
+        void run() throws Exception;
+    }
+
+    private final RefreshTask task;
+    private final long intervalMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> next;
+    private boolean visible;
+    private boolean running;
+    private boolean disposed;
+    private int failures;
+    private long lastSuccessAt;
+    private long lastAttemptAt;
+
+    /**
+     * @param intervalMs   正常刷新间隔
+     * @param maxBackoffMs 失败重试的最长间隔
+     */
+    public AdaptiveRefreshScheduler(String name, long intervalMs, long maxBackoffMs, RefreshTask task) {
+        this.task = task;
+        this.intervalMs = intervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.executor = AppExecutorUtil.createBoundedScheduledExecutorService(name, 1);
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(PowerSaveMode.TOPIC, new PowerSaveMode.Listener() {
+                    @Override
+                    public void powerSaveStateChanged() {
+                        reschedule();
+                    }
+                });
+    }
+
+    /**
+     * 界面显示或隐藏时调用
+     */
+    public synchronized void setVisible(boolean visible) {
+        this.visible = visible;
+        reschedule();
+    }
+
+    /**
+     * 立即刷新，不受暂停状态影响
+     */
+    public synchronized void refreshNow() {
+        if (disposed || running) {
+            return;
+        }
+        cancelNext();
+        next = executor.schedule(this::runTask, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 最近一次成功刷新的时间，尚未成功时为 0
+     */
+    public synchronized long getLastSuccessAt() {
+        return lastSuccessAt;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        disposed = true;
+        cancelNext();
+    }
+
+    private synchronized void reschedule() {
+        cancelNext();
+        if (disposed || running || !visible || PowerSaveMode.isEnabled()) {
+            return;
+        }
+        next = executor.schedule(this::runTask, nextDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 距下次刷新的时间，已过期时为 0
+     */
+    private long nextDelay() {
+        long now = System.currentTimeMillis();
+        long due;
+        if (failures > 0) {
+            long backoff = MIN_RETRY_MS << Math.min(failures - 1, 20);
+            due = lastAttemptAt + Math.min(backoff, maxBackoffMs);
+        } else {
+            due = lastSuccessAt + intervalMs;
+        }
+        return Math.max(0, due - now);
+    }
+
+    private void runTask() {
+        synchronized (this) {
+            if (disposed || running) {
+                return;
+            }
+            running = true;
+            next = null;
+        }
+        boolean success = false;
+        try {
+            task.run();
+            success = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.warn("Refresh failed", e);
+        } finally {
+            synchronized (this) {
+                running = false;
+                lastAttemptAt = System.currentTimeMillis();
+                if (success) {
+                    failures = 0;
+                    lastSuccessAt = lastAttemptAt;
+                } else {
+                    failures++;
+                }
+                reschedule();
+            }
+        }
+    }
+
+    private void cancelNext() {
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+}
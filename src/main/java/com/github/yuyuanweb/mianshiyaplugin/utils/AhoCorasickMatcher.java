@@ -0,0 +1,226 @@
+package com.github.yuyuanweb.mianshiyaplugin.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多关键词匹配
+ * 将所有关键词构建为 Aho-Corasick 自动机，扫描一段文本只需遍历一次，耗时与文本长度成正比，与关键词数量无关。
+ * 匹配不区分大小写，构建后不可修改。
+ */
+public class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+
+    private final List<String> terms;
+    /**
+     * 状态转移表，键为状态编号和字符
+     */
+    private final TransitionTable transitions = new TransitionTable();
+    private int[] fail;
+    /**
+     * 状态结束的关键词编号，没有时为 -1
+     */
+    private int[] termAt;
+    /**
+     * 沿失败链接能到达的最近一个结束状态，没有时为 -1
+     */
+    private int[] outputLink;
+    private int stateCount = 1;
+
+    /**
+     * @param terms 关键词，空白和重复的关键词被忽略
+     */
+    public AhoCorasickMatcher(List<String> terms) {
+        List<String> accepted = new ArrayList<>();
+        int capacity = 1;
+        for (String term : terms) {
+            capacity += term.length();
+        }
+        termAt = new int[capacity];
+        Arrays.fill(termAt, -1);
+        for (String term : terms) {
+            String trimmed = term.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < trimmed.length(); i++) {
+                // 与扫描时相同，逐字符转为小写
+                char c = Character.toLowerCase(trimmed.charAt(i));
+                int next = transitions.get(state, c);
+                if (next < 0) {
+                    next = stateCount++;
+                    transitions.put(state, c, next);
+                }
+                state = next;
+            }
+            if (termAt[state] < 0) {
+                termAt[state] = accepted.size();
+                accepted.add(trimmed);
+            }
+        }
+        this.terms = Collections.unmodifiableList(accepted);
+        buildFailureLinks();
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    /**
+     * 找出文本中出现的关键词
+     * @return 按关键词的添加顺序排列，每个关键词最多一次
+     */
+    public List<String> findAll(String text) {
+        if (terms.isEmpty() || text == null) {
+            return Collections.emptyList();
+        }
+        BitSet found = null;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transitions.get(state, c);
+            while (next < 0 && state != ROOT) {
+                state = fail[state];
+                next = transitions.get(state, c);
+            }
+            state = next < 0 ? ROOT : next;
+            // 当前状态及其失败链上所有结束状态对应的关键词都在此处出现
+            int output = termAt[state] >= 0 ? state : outputLink[state];
+            while (output >= 0) {
+                if (found == null) {
+                    found = new BitSet(terms.size());
+                }
+                found.set(termAt[output]);
+                output = outputLink[output];
+            }
+        }
+        if (found == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(found.cardinality());
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            result.add(terms.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 按广度优先顺序计算失败链接和输出链接
+     */
+    private void buildFailureLinks() {
+        fail = new int[stateCount];
+        outputLink = new int[stateCount];
+        termAt = Arrays.copyOf(termAt, stateCount);
+        Arrays.fill(outputLink, -1);
+        // 将转移表按父状态分组，得到每个状态的子状态和对应字符
+        int[] counts = new int[stateCount];
+        for (long key : transitions.keys) {
+            if (key != -1) {
+                counts[(int) (key >>> 16)]++;
+            }
+        }
+        int[][] children = new int[stateCount][];
+        char[][] labels = new char[stateCount][];
+        for (int i = 0; i < stateCount; i++) {
+            children[i] = new int[counts[i]];
+            labels[i] = new char[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < transitions.keys.length; i++) {
+            long key = transitions.keys[i];
+            if (key != -1) {
+                int parent = (int) (key >>> 16);
+                children[parent][counts[parent]] = transitions.values[i];
+                labels[parent][counts[parent]++] = (char) key;
+            }
+        }
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int child : children[ROOT]) {
+            fail[child] = ROOT;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = 0; i < children[state].length; i++) {
+                int child = children[state][i];
+                char c = labels[state][i];
+                int fallback = fail[state];
+                int target = transitions.get(fallback, c);
+                while (target < 0 && fallback != ROOT) {
+                    fallback = fail[fallback];
+                    target = transitions.get(fallback, c);
+                }
+                fail[child] = target < 0 ? ROOT : target;
+                outputLink[child] = termAt[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * 开放寻址的转移表，避免为每个状态分配一张表
+     */
+    private static class TransitionTable {
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private int size;
+
+        private TransitionTable() {
+            Arrays.fill(keys, -1);
+        }
+
+        private static long key(int state, char c) {
+            return (long) state << 16 | c;
+        }
+
+        private int slot(long key, long[] table) {
+            int mask = table.length - 1;
+            int slot = (int) (key ^ key >>> 29) * 0x9E3779B9 >>> 7 & mask;
+            while (table[slot] != -1 && table[slot] != key) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+
+        private int get(int state, char c) {
+            long key = key(state, c);
+            int slot = slot(key, keys);
+            return keys[slot] == key ? values[slot] : -1;
+        }
+
+        private void put(int state, char c, int target) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            long key = key(state, c);
+            int slot = slot(key, keys);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = target;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) {
+                    int slot = slot(oldKeys[i], keys);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.github.yuyuanweb.mianshiyaplugin.utils;
+
+import javax.swing.text.MutableAttributeSet;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.parser.ParserDelegator;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 网页正文提取
+ * 使用 JDK 自带的 HTML 解析器遍历页面，按段落文字长度和标点数给所在容器打分，
+ * 取得分最高的容器中的段落和图片作为正文，跳过导航、页眉页脚、脚本等区域以及链接占比高的段落。
+ */
+public class ArticleExtractor {
+
+    /**
+     * 参与打分的段落最短字数
+     */
+    private static final int MIN_PARAGRAPH_LENGTH = 25;
+    /**
+     * 正文总字数低于此值时视为提取失败
+     */
+    private static final int MIN_ARTICLE_LENGTH = 140;
+    private static final int MIN_IMAGE_SIZE = 50;
+
+    private static final Set<String> SKIPPED_TAGS = new HashSet<>(Arrays.asList(
+            "script", "style", "noscript", "nav", "header", "footer", "aside", "form", "button",
+            "select", "textarea", "iframe", "svg"));
+    private static final Set<String> CONTAINER_TAGS = new HashSet<>(Arrays.asList(
+            "body", "div", "article", "section", "main", "td"));
+    private static final Set<String> BLOCK_TAGS = new HashSet<>(Arrays.asList(
+            "p", "h1", "h2", "h3", "h4", "h5", "h6", "li", "blockquote", "pre", "br", "tr", "dd", "dt"));
+
+    private ArticleExtractor() {
+    }
+
+    /**
+     * 提取正文
+     * @param baseUrl 页面地址，用于解析图片的相对地址
+     * @return 提取失败时返回 null
+     */
+    public static Article extract(String html, String baseUrl) {
+        Collector collector = new Collector(baseUrl);
+        try {
+            new ParserDelegator().parse(new StringReader(html), collector, true);
+        } catch (IOException | RuntimeException e) {
+            // 解析器遇到无法处理的内容时使用已收集的部分
+        }
+        collector.flushText();
+        return collector.buildArticle();
+    }
+
+    /**
+     * 提取结果
+     */
+    public static class Article {
+        private final String title;
+        private final List<Block> blocks;
+
+        public Article(String title, List<Block> blocks) {
+            this.title = title;
+            this.blocks = blocks;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+    }
+
+    /**
+     * 正文中的一段文字或一张图片
+     */
+    public static class Block {
+        private final String text;
+        private final boolean heading;
+        private final String imageUrl;
+        private final int imageWidth;
+        private final int imageHeight;
+
+        private Block(String text, boolean heading, String imageUrl, int imageWidth, int imageHeight) {
+            this.text = text;
+            this.heading = heading;
+            this.imageUrl = imageUrl;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+
+        public boolean isImage() {
+            return imageUrl != null;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isHeading() {
+            return heading;
+        }
+
+        public String getImageUrl() {
+            return imageUrl;
+        }
+
+        /**
+         * 页面声明的图片宽度，未声明时为 0
+         */
+        public int getImageWidth() {
+            return imageWidth;
+        }
+
+        /**
+         * 页面声明的图片高度，未声明时为 0
+         */
+        public int getImageHeight() {
+            return imageHeight;
+        }
+    }
+
+    /**
+     * 收集过程中的块，记录所在的容器链
+     */
+    private static class Candidate {
+        private final Block block;
+        private final int[] containers;
+
+        private Candidate(Block block, int[] containers) {
+            this.block = block;
+            this.containers = containers;
+        }
+    }
+
+    private static class Collector extends HTMLEditorKit.ParserCallback {
+        private final URI base;
+        private final List<Candidate> candidates = new ArrayList<>();
+        private final Map<Integer, Double> scores = new HashMap<>();
+        private final Deque<Integer> containers = new ArrayDeque<>();
+        private final Deque<String> containerTags = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder title = new StringBuilder();
+        private int linkTextLength;
+        private int skipDepth;
+        private int linkDepth;
+        private boolean inTitle;
+        private boolean inHeading;
+        private int nextContainerId;
+
+        private Collector(String baseUrl) {
+            URI uri = null;
+            try {
+                uri = URI.create(baseUrl);
+            } catch (RuntimeException ignored) {
+                // 无法解析的地址只影响相对路径的图片
+            }
+            this.base = uri;
+        }
+
+        @Override
+        public void handleStartTag(HTML.Tag tag, MutableAttributeSet attributes, int pos) {
+            String name = tag.toString();
+            if (SKIPPED_TAGS.contains(name)) {
+                skipDepth++;
+                return;
+            }
+            if (tag == HTML.Tag.TITLE) {
+                inTitle = true;
+                return;
+            }
+            if (skipDepth > 0) {
+                return;
+            }
+            if (CONTAINER_TAGS.contains(name)) {
+                flushText();
+                containers.push(nextContainerId++);
+                containerTags.push(name);
+            } else if (BLOCK_TAGS.contains(name)) {
+                flushText();
+                inHeading = name.length() == 2 && name.charAt(0) == 'h';
+            } else if (tag == HTML.Tag.A) {
+                linkDepth++;
+            }
+        }
+
+        @Override
+        public void handleEndTag(HTML.Tag tag, int pos) {
+            String name = tag.toString();
+            if (SKIPPED_TAGS.contains(name)) {
+                skipDepth = Math.max(0, skipDepth - 1);
+                return;
+            }
+            if (tag == HTML.Tag.TITLE) {
+                inTitle = false;
+                return;
+            }
+            if (skipDepth > 0) {
+                return;
+            }
+            if (CONTAINER_TAGS.contains(name)) {
+                flushText();
+                // 标签未正确闭合时弹出到同名容器
+                if (containerTags.contains(name)) {
+                    while (!containerTags.isEmpty()) {
+                        containers.pop();
+                        if (containerTags.pop().equals(name)) {
+                            break;
+                        }
+                    }
+                }
+            } else if (BLOCK_TAGS.contains(name)) {
+                flushText();
+                inHeading = false;
+            } else if (tag == HTML.Tag.A) {
+                linkDepth = Math.max(0, linkDepth - 1);
+            }
+        }
+
+        @Override
+        public void handleSimpleTag(HTML.Tag tag, MutableAttributeSet attributes, int pos) {
+            // 解析器不认识的 HTML5 标签（article、nav 等）以单标签形式回调，结束标签带 ENDTAG 属性
+            if (tag instanceof HTML.UnknownTag) {
+                if (attributes.isDefined(HTML.Attribute.ENDTAG)) {
+                    handleEndTag(tag, pos);
+                } else {
+                    handleStartTag(tag, attributes, pos);
+                }
+                return;
+            }
+            if (skipDepth > 0) {
+                return;
+            }
+            if (tag == HTML.Tag.BR) {
+                flushText();
+            } else if (tag == HTML.Tag.IMG) {
+                addImage(attributes);
+            }
+        }
+
+        @Override
+        public void handleText(char[] data, int pos) {
+            if (inTitle) {
+                title.append(data);
+                return;
+            }
+            if (skipDepth > 0) {
+                return;
+            }
+            text.append(data);
+            if (linkDepth > 0) {
+                linkTextLength += data.length;
+            }
+        }
+
+        private void addImage(MutableAttributeSet attributes) {
+            // 懒加载图片的真实地址通常放在 data-src 中
+            String src = attribute(attributes, "data-src");
+            if (src == null) {
+                src = attribute(attributes, "src");
+            }
+            if (src == null || src.startsWith("data:")) {
+                return;
+            }
+            int width = parseSize(attribute(attributes, "width"));
+            int height = parseSize(attribute(attributes, "height"));
+            if ((width > 0 && width < MIN_IMAGE_SIZE) || (height > 0 && height < MIN_IMAGE_SIZE)) {
+                return;
+            }
+            String url;
+            try {
+                url = base != null ? base.resolve(src.trim()).toString() : src.trim();
+            } catch (RuntimeException e) {
+                return;
+            }
+            if (!url.startsWith("http")) {
+                return;
+            }
+            flushText();
+            candidates.add(new Candidate(new Block(null, false, url, width, height), containerChain()));
+        }
+
+        private void flushText() {
+            String paragraph = normalize(text);
+            int linkLength = linkTextLength;
+            text.setLength(0);
+            linkTextLength = 0;
+            if (paragraph.isEmpty()) {
+                return;
+            }
+            int[] chain = containerChain();
+            candidates.add(new Candidate(new Block(paragraph, inHeading, null, 0, 0), chain));
+            // 链接占一半以上的段落多为导航或推荐列表，不计分
+            if (inHeading || paragraph.length() < MIN_PARAGRAPH_LENGTH || linkLength * 2 > paragraph.length()) {
+                return;
+            }
+            double score = 1 + countCommas(paragraph) + Math.min(paragraph.length() / 100, 3);
+            if (chain.length > 0) {
+                scores.merge(chain[0], score, Double::sum);
+            }
+            if (chain.length > 1) {
+                scores.merge(chain[1], score / 2, Double::sum);
+            }
+        }
+
+        private int[] containerChain() {
+            int[] chain = new int[containers.size()];
+            int i = 0;
+            for (Integer id : containers) {
+                chain[i++] = id;
+            }
+            return chain;
+        }
+
+        private Article buildArticle() {
+            int best = -1;
+            double bestScore = 0;
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                if (entry.getValue() > bestScore) {
+                    bestScore = entry.getValue();
+                    best = entry.getKey();
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            List<Block> blocks = new ArrayList<>();
+            int textLength = 0;
+            for (Candidate candidate : candidates) {
+                if (contains(candidate.containers, best)) {
+                    blocks.add(candidate.block);
+                    if (!candidate.block.isImage()) {
+                        textLength += candidate.block.getText().length();
+                    }
+                }
+            }
+            if (textLength < MIN_ARTICLE_LENGTH) {
+                return null;
+            }
+            return new Article(normalize(title), Collections.unmodifiableList(blocks));
+        }
+
+        private static boolean contains(int[] chain, int id) {
+            for (int value : chain) {
+                if (value == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String attribute(MutableAttributeSet attributes, String name) {
+            Object value = attributes.getAttribute(HTML.getAttributeKey(name));
+            if (value == null) {
+                // 非标准属性以字符串为键保存
+                value = attributes.getAttribute(name);
+            }
+            return value == null ? null : value.toString();
+        }
+
+        private static int parseSize(String value) {
+            if (value == null) {
+                return 0;
+            }
+            int end = 0;
+            while (end < value.length() && Character.isDigit(value.charAt(end))) {
+                end++;
+            }
+            try {
+                return end == 0 ? 0 : Integer.parseInt(value.substring(0, Math.min(end, 6)));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        private static int countCommas(String paragraph) {
+            int count = 0;
+            for (int i = 0; i < paragraph.length(); i++) {
+                char c = paragraph.charAt(i);
+                if (c == ',' || c == '，' || c == '。' || c == '、') {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static String normalize(CharSequence value) {
+            StringBuilder result = new StringBuilder(value.length());
+            boolean space = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (Character.isWhitespace(c) || c == ' ') {
+                    space = result.length() > 0;
+                } else {
+                    if (space) {
+                        result.append(' ');
+                        space = false;
+                    }
+                    result.append(c);
+                }
+            }
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.yuyuanweb.mianshiyaplugin.utils;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent.Node;
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent.NodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聊天消息标记解析器
+ * 一次线性扫描把消息内容解析为 {@link ChatContent}，支持：
+ * [img]url[/img]、[emoji]url[/emoji]、http(s) 链接、@用户名
+ */
+public class ChatMarkupTokenizer {
+
+    private static final String IMG_OPEN = "[img]";
+    private static final String IMG_CLOSE = "[/img]";
+    private static final String EMOJI_OPEN = "[emoji]";
+    private static final String EMOJI_CLOSE = "[/emoji]";
+    private static final String HTTP = "http://";
+    private static final String HTTPS = "https://";
+
+    private ChatMarkupTokenizer() {
+    }
+
+    /**
+     * 解析消息内容
+     */
+    public static ChatContent tokenize(String content) {
+        if (content == null || content.isEmpty()) {
+            return ChatContent.EMPTY;
+        }
+
+        List<Node> nodes = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            char c = content.charAt(i);
+            int end = -1;
+            if (c == '[') {
+                end = matchTag(content, i, IMG_OPEN, IMG_CLOSE, NodeType.IMAGE, text, nodes);
+                if (end < 0) {
+                    end = matchTag(content, i, EMOJI_OPEN, EMOJI_CLOSE, NodeType.EMOJI, text, nodes);
+                }
+            } else if (c == 'h') {
+                end = matchLink(content, i, text, nodes);
+            } else if (c == '@') {
+                end = matchMention(content, i, text, nodes);
+            }
+
+            if (end < 0) {
+                text.append(c);
+                i++;
+            } else {
+                i = end;
+            }
+        }
+        flushText(text, nodes);
+        trimEdges(nodes);
+        return nodes.isEmpty() ? ChatContent.EMPTY : new ChatContent(nodes);
+    }
+
+    /**
+     * 匹配 [tag]value[/tag]，成功返回结束位置，否则返回 -1
+     */
+    private static int matchTag(String content, int start, String open, String close, NodeType type,
+                                StringBuilder text, List<Node> nodes) {
+        if (!content.startsWith(open, start)) {
+            return -1;
+        }
+        int valueStart = start + open.length();
+        // 与原有正则 \[img\]([^\[]+)\[/img\] 保持一致：值中不能包含 '['
+        int valueEnd = content.indexOf('[', valueStart);
+        if (valueEnd <= valueStart || !content.startsWith(close, valueEnd)) {
+            return -1;
+        }
+        flushText(text, nodes);
+        nodes.add(new Node(type, content.substring(valueStart, valueEnd)));
+        return valueEnd + close.length();
+    }
+
+    /**
+     * 匹配 http(s) 链接，成功返回结束位置，否则返回 -1
+     */
+    private static int matchLink(String content, int start, StringBuilder text, List<Node> nodes) {
+        int prefix;
+        if (content.startsWith(HTTPS, start)) {
+            prefix = HTTPS.length();
+        } else if (content.startsWith(HTTP, start)) {
+            prefix = HTTP.length();
+        } else {
+            return -1;
+        }
+        // 链接前必须是单词边界，避免把 xxhttp:// 之类的文本拆开
+        if (start > 0 && Character.isLetterOrDigit(content.charAt(start - 1))) {
+            return -1;
+        }
+        int end = start + prefix;
+        while (end < content.length() && isUrlChar(content.charAt(end))) {
+            end++;
+        }
+        // 去掉链接末尾的标点
+        while (end > start + prefix && isTrailingPunctuation(content.charAt(end - 1))) {
+            end--;
+        }
+        if (end == start + prefix) {
+            return -1;
+        }
+        flushText(text, nodes);
+        nodes.add(new Node(NodeType.LINK, content.substring(start, end)));
+        return end;
+    }
+
+    /**
+     * 匹配 @用户名，成功返回结束位置，否则返回 -1
+     */
+    private static int matchMention(String content, int start, StringBuilder text, List<Node> nodes) {
+        // @ 前必须是开头或空白，避免把邮箱地址识别为提及
+        if (start > 0 && !Character.isWhitespace(content.charAt(start - 1))) {
+            return -1;
+        }
+        int end = start + 1;
+        while (end < content.length() && isMentionChar(content.charAt(end))) {
+            end++;
+        }
+        if (end == start + 1) {
+            return -1;
+        }
+        flushText(text, nodes);
+        nodes.add(new Node(NodeType.MENTION, content.substring(start + 1, end)));
+        return end;
+    }
+
+    private static boolean isUrlChar(char c) {
+        return c > ' ' && c < 0x7f && c != '[' && c != ']' && c != '<' && c != '>' && c != '"' && c != '\'';
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?' || c == ')';
+    }
+
+    private static boolean isMentionChar(char c) {
+        return !Character.isWhitespace(c) && c != '@' && c != '[' && c != ',' && c != '，' && c != ':' && c != '：';
+    }
+
+    private static void flushText(StringBuilder text, List<Node> nodes) {
+        if (text.length() > 0) {
+            nodes.add(new Node(NodeType.TEXT, text.toString()));
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * 去掉消息首尾以及图片前后文本节点的空白，效果等同于原先对纯文本部分的 trim()；
+     * 图片单独成行显示，图片之间只有空白的文本节点被删除，不会让消息被当作包含文本
+     */
+    private static void trimEdges(List<Node> nodes) {
+        int lastIndex = nodes.size() - 1;
+        for (int i = 0; i <= lastIndex; i++) {
+            Node node = nodes.get(i);
+            if (node.getType() != NodeType.TEXT) {
+                continue;
+            }
+            String value = node.getValue();
+            if (i == 0 || nodes.get(i - 1).getType() == NodeType.IMAGE) {
+                value = stripLeading(value);
+            }
+            if (i == lastIndex || nodes.get(i + 1).getType() == NodeType.IMAGE) {
+                value = stripTrailing(value);
+            }
+            if (!value.equals(node.getValue())) {
+                nodes.set(i, new Node(NodeType.TEXT, value));
+            }
+        }
+        nodes.removeIf(node -> node.getType() == NodeType.TEXT && node.getValue().isEmpty());
+    }
+
+    private static String stripLeading(String value) {
+        int start = 0;
+        while (start < value.length() && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return value.substring(start);
+    }
+
+    private static String stripTrailing(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+}
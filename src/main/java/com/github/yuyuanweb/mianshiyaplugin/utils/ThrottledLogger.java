@@ -0,0 +1,108 @@
+package com.github.yuyuanweb.mianshiyaplugin.utils;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 热点路径日志
+ * 日志内容通过 Supplier 延迟生成，级别未开启时不拼接字符串；
+ * DEBUG 日志交给后台线程生成和写入；按调用点限流，同一调用点在间隔内只输出一条，并记录省略的条数。
+ */
+public class ThrottledLogger {
+
+    private static final int ASYNC_QUEUE_SIZE = 1024;
+
+    /**
+     * 所有实例共用的 DEBUG 日志线程，队列满时直接丢弃
+     */
+    private static final ThreadPoolExecutor ASYNC_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE), runnable -> {
+        Thread thread = new Thread(runnable, "FishLogWriter");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final Logger logger;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+
+    private ThrottledLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static ThrottledLogger getInstance(Class<?> cls) {
+        return new ThrottledLogger(Logger.getInstance(cls));
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+
+    /**
+     * DEBUG 日志，在后台线程中生成消息
+     */
+    public void debug(Supplier<String> message) {
+        if (logger.isDebugEnabled()) {
+            ASYNC_EXECUTOR.execute(() -> logger.debug(message.get()));
+        }
+    }
+
+    /**
+     * 限流的 INFO 日志
+     * @param site 调用点标识，同一标识共用限流间隔
+     */
+    public void info(String site, long intervalMs, Supplier<String> message) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        int suppressed = acquire(site, intervalMs);
+        if (suppressed >= 0) {
+            logger.info(withSuppressed(message.get(), suppressed));
+        }
+    }
+
+    /**
+     * 限流的 WARN 日志
+     * @param site 调用点标识，同一标识共用限流间隔
+     */
+    public void warn(String site, long intervalMs, Supplier<String> message, Throwable error) {
+        int suppressed = acquire(site, intervalMs);
+        if (suppressed >= 0) {
+            logger.warn(withSuppressed(message.get(), suppressed), error);
+        }
+    }
+
+    /**
+     * 尝试在调用点输出一条日志
+     * @return 允许输出时返回上次输出后省略的条数，否则返回 -1
+     */
+    private int acquire(String site, long intervalMs) {
+        Site state = sites.computeIfAbsent(site, key -> new Site());
+        long now = System.currentTimeMillis();
+        long last = state.lastLogged.get();
+        if (now - last < intervalMs || !state.lastLogged.compareAndSet(last, now)) {
+            state.suppressed.incrementAndGet();
+            return -1;
+        }
+        return state.suppressed.getAndSet(0);
+    }
+
+    private static String withSuppressed(String message, int suppressed) {
+        return suppressed > 0 ? message + "（期间省略 " + suppressed + " 条）" : message;
+    }
+
+    /**
+     * 调用点的限流状态
+     */
+    private static class Site {
+        private final AtomicLong lastLogged = new AtomicLong(Long.MIN_VALUE / 2);
+        private final AtomicInteger suppressed = new AtomicInteger();
+    }
+}
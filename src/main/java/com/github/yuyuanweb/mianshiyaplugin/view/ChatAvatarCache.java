@@ -0,0 +1,117 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.utils.ThrottledLogger;
+import com.intellij.openapi.Disposable;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 聊天头像缓存
+ * 同一个头像地址只下载一次，所有消息卡片共享同一个加载结果；加载失败的地址在下次使用时重新下载
+ */
+public class ChatAvatarCache implements Disposable {
+    private static final ThrottledLogger LOG = ThrottledLogger.getInstance(ChatAvatarCache.class);
+
+    /**
+     * 缓存的头像数量上限
+     */
+    private static final int MAX_ENTRIES = 256;
+    /**
+     * 头像缩放后的边长，为高分屏保留两倍于显示尺寸的像素
+     */
+    private static final int AVATAR_SIZE = 48;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    private final Map<String, CompletableFuture<ImageIcon>> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<ImageIcon>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "FishChatAvatarLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 获取头像，可在任意线程调用
+     * @return 加载结果，加载失败时以异常完成并从缓存中移除
+     */
+    public CompletableFuture<ImageIcon> get(String url) {
+        synchronized (cache) {
+            CompletableFuture<ImageIcon> future = cache.get(url);
+            if (future == null) {
+                future = executor.isShutdown()
+                        ? CompletableFuture.failedFuture(new IllegalStateException("头像缓存已释放"))
+                        : CompletableFuture.supplyAsync(() -> load(url), executor);
+                cache.put(url, future);
+                // 加载失败的结果不缓存，之后的消息重新下载
+                CompletableFuture<ImageIcon> loading = future;
+                future.whenComplete((icon, error) -> {
+                    if (error != null) {
+                        synchronized (cache) {
+                            cache.remove(url, loading);
+                        }
+                    }
+                });
+            }
+            return future;
+        }
+    }
+
+    /**
+     * 下载头像并缩放
+     */
+    private static ImageIcon load(String avatarUrl) {
+        try {
+            URL url = new URL(avatarUrl);
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // 注意：ImageIO.read()不支持GIF动画，但可以读取第一帧
+            Image image;
+            try (InputStream inputStream = connection.getInputStream()) {
+                image = ImageIO.read(inputStream);
+            }
+            if (image == null) {
+                // ImageIO无法读取图像，尝试使用Toolkit方法（ImageIcon内部会等待加载完成）
+                ImageIcon icon = new ImageIcon(url);
+                if (icon.getImageLoadStatus() != MediaTracker.COMPLETE) {
+                    throw new IllegalStateException("无法加载图像");
+                }
+                image = icon.getImage();
+            }
+
+            BufferedImage scaled = new BufferedImage(AVATAR_SIZE, AVATAR_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = scaled.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(image, 0, 0, AVATAR_SIZE, AVATAR_SIZE, null);
+            g2d.dispose();
+            return new ImageIcon(scaled);
+        } catch (Exception e) {
+            LOG.warn("loadAvatar", 60_000L, () -> "无法加载头像: " + e.getMessage(), null);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.utils.ThrottledLogger;
+import com.intellij.openapi.Disposable;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 聊天图片懒加载器
+ * 图片只有在启用显示且位于视口（或附近）时才会下载和解码，
+ * 离开视口较远或被移除的图片会取消加载，占位符尺寸固定，图片到达时不会引起重新布局
+ */
+public class ChatImageLoader implements Disposable {
+    private static final ThrottledLogger LOG = ThrottledLogger.getInstance(ChatImageLoader.class);
+
+    /**
+     * 图片占位尺寸，加载后的图片按比例缩放到该尺寸以内
+     */
+    public static final int SLOT_WIDTH = 200;
+    public static final int SLOT_HEIGHT = 150;
+
+    /**
+     * 视口上下预加载的距离（以视口高度为单位），超过两倍距离的加载会被取消
+     */
+    private static final double PRELOAD_MARGIN = 1.0;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    private static final int CACHE_SIZE = 32;
+
+    private final JViewport viewport;
+    private final Set<ImageSlot> attachedSlots = new LinkedHashSet<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "FishChatImageLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 缩放后的图片缓存，仅在EDT上访问
+    private final Map<String, Image> imageCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private boolean updateScheduled = false;
+
+    public ChatImageLoader(JScrollPane scrollPane) {
+        this.viewport = scrollPane.getViewport();
+        viewport.addChangeListener(e -> scheduleUpdate());
+    }
+
+    /**
+     * 创建图片占位组件
+     */
+    public JComponent createSlot(String url) {
+        return new ImageSlot(url);
+    }
+
+    /**
+     * 合并同一轮事件中的多次检查请求
+     */
+    private void scheduleUpdate() {
+        if (updateScheduled) {
+            return;
+        }
+        updateScheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            updateScheduled = false;
+            updateSlots();
+        });
+    }
+
+    /**
+     * 根据可见性和视口位置启动或取消加载
+     */
+    private void updateSlots() {
+        Component view = viewport.getView();
+        if (view == null || attachedSlots.isEmpty()) {
+            return;
+        }
+        Rectangle viewRect = viewport.getViewRect();
+        int margin = (int) (viewRect.height * PRELOAD_MARGIN);
+        Rectangle loadRect = new Rectangle(viewRect.x, viewRect.y - margin, viewRect.width, viewRect.height + 2 * margin);
+        Rectangle keepRect = new Rectangle(viewRect.x, viewRect.y - 2 * margin, viewRect.width, viewRect.height + 4 * margin);
+
+        for (ImageSlot slot : new ArrayList<>(attachedSlots)) {
+            if (slot.image != null || slot.failed) {
+                continue;
+            }
+            // 尚未完成布局的占位符等布局完成（视口尺寸变化）后再判断
+            if (!slot.isShowing() || slot.getWidth() == 0 || !SwingUtilities.isDescendingFrom(slot, view)) {
+                slot.cancel();
+                continue;
+            }
+            Rectangle bounds = SwingUtilities.convertRectangle(slot.getParent(), slot.getBounds(), view);
+            if (bounds.intersects(loadRect)) {
+                slot.load();
+            } else if (!bounds.intersects(keepRect)) {
+                slot.cancel();
+            }
+        }
+    }
+
+    /**
+     * 下载并缩放图片
+     */
+    private static Image readScaledImage(String imageUrl) throws Exception {
+        URLConnection connection = new URL(imageUrl).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        BufferedImage originalImage;
+        try (InputStream inputStream = connection.getInputStream()) {
+            originalImage = ImageIO.read(inputStream);
+        }
+        if (originalImage == null) {
+            throw new Exception("无法解码图片");
+        }
+
+        int originalWidth = originalImage.getWidth();
+        int originalHeight = originalImage.getHeight();
+        double scale = Math.min(1.0, Math.min((double) SLOT_WIDTH / originalWidth, (double) SLOT_HEIGHT / originalHeight));
+        int newWidth = Math.max(1, (int) (originalWidth * scale));
+        int newHeight = Math.max(1, (int) (originalHeight * scale));
+
+        BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = scaledImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
+        g2d.dispose();
+        return scaledImage;
+    }
+
+    @Override
+    public void dispose() {
+        for (ImageSlot slot : attachedSlots) {
+            slot.cancel();
+        }
+        attachedSlots.clear();
+        imageCache.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 固定尺寸的图片占位组件
+     */
+    private class ImageSlot extends JComponent {
+        private final String url;
+        private Image image;
+        private Future<?> loading;
+        private boolean failed = false;
+
+        ImageSlot(String url) {
+            this.url = url;
+            Dimension size = new Dimension(SLOT_WIDTH, SLOT_HEIGHT);
+            setPreferredSize(size);
+            setMinimumSize(size);
+            setMaximumSize(size);
+            setAlignmentX(Component.LEFT_ALIGNMENT);
+            image = imageCache.get(url);
+        }
+
+        void load() {
+            if (loading != null || image != null || executor.isShutdown()) {
+                return;
+            }
+            loading = executor.submit(() -> {
+                try {
+                    Image scaledImage = readScaledImage(url);
+                    if (!Thread.currentThread().isInterrupted()) {
+                        SwingUtilities.invokeLater(() -> onLoaded(scaledImage));
+                    }
+                } catch (Exception e) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        LOG.warn("loadImage", 60_000L, () -> "无法加载图片: " + e.getMessage(), null);
+                        SwingUtilities.invokeLater(this::onFailed);
+                    }
+                }
+            });
+        }
+
+        void cancel() {
+            if (loading != null) {
+                loading.cancel(true);
+                loading = null;
+            }
+        }
+
+        private void onLoaded(Image scaledImage) {
+            loading = null;
+            image = scaledImage;
+            imageCache.put(url, scaledImage);
+            // 尺寸固定，只需重绘
+            repaint();
+        }
+
+        private void onFailed() {
+            loading = null;
+            failed = true;
+            repaint();
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            super.setVisible(visible);
+            if (visible) {
+                scheduleUpdate();
+            } else {
+                cancel();
+            }
+        }
+
+        @Override
+        public void addNotify() {
+            super.addNotify();
+            attachedSlots.add(this);
+            scheduleUpdate();
+        }
+
+        @Override
+        public void removeNotify() {
+            super.removeNotify();
+            attachedSlots.remove(this);
+            cancel();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (image != null) {
+                g.drawImage(image, 0, 0, this);
+                return;
+            }
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(new Color(150, 150, 150, 60));
+            g2.fillRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 8, 8);
+            String text = failed ? "无法加载图片" : "加载中...";
+            FontMetrics fm = g2.getFontMetrics();
+            g2.setColor(new Color(150, 150, 150));
+            g2.drawString(text, (getWidth() - fm.stringWidth(text)) / 2,
+                    (getHeight() + fm.getAscent() - fm.getDescent()) / 2);
+            g2.dispose();
+        }
+    }
+}
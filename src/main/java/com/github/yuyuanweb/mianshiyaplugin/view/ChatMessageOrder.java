@@ -0,0 +1,100 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聊天消息的显示顺序
+ * 历史消息、实时消息和本地回显到达的顺序可能与发送顺序不同，
+ * 这里按服务器时间戳和消息ID维护有序列表，新消息通过二分查找确定插入位置。
+ * 只在EDT上使用。
+ */
+public class ChatMessageOrder {
+
+    private final List<ChatMessageViewModel> messages = new ArrayList<>();
+    private final List<JComponent> cards = new ArrayList<>();
+
+    /**
+     * 插入消息及其卡片
+     * @return 排在新消息之后的第一张卡片，新消息排在最后时返回 null
+     */
+    public JComponent insert(ChatMessageViewModel message, JComponent card) {
+        int index = upperBound(message);
+        messages.add(index, message);
+        cards.add(index, card);
+        return index + 1 < cards.size() ? cards.get(index + 1) : null;
+    }
+
+    /**
+     * 用新消息替换已有卡片对应的消息，新消息按自己的时间戳重新定位
+     * @return 排在新消息之后的第一张卡片，新消息排在最后时返回 null
+     */
+    public JComponent replace(JComponent oldCard, ChatMessageViewModel message, JComponent card) {
+        int index = cards.indexOf(oldCard);
+        if (index >= 0) {
+            messages.remove(index);
+            cards.remove(index);
+        }
+        return insert(message, card);
+    }
+
+    /**
+     * 移除卡片及其消息
+     */
+    public void remove(JComponent card) {
+        int index = cards.indexOf(card);
+        if (index >= 0) {
+            messages.remove(index);
+            cards.remove(index);
+        }
+    }
+
+    public void clear() {
+        messages.clear();
+        cards.clear();
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * 第一条排在给定消息之后的位置，相同顺序的消息保持到达顺序
+     */
+    private int upperBound(ChatMessageViewModel message) {
+        int size = messages.size();
+        // 绝大多数消息按顺序到达，直接追加
+        if (size == 0 || compare(messages.get(size - 1), message) <= 0) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(messages.get(mid), message) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(ChatMessageViewModel a, ChatMessageViewModel b) {
+        int result = Long.compare(a.getTimestamp(), b.getTimestamp());
+        if (result != 0) {
+            return result;
+        }
+        String idA = a.getMessage().getId();
+        String idB = b.getMessage().getId();
+        if (idA == null || idB == null) {
+            return idA == null ? (idB == null ? 0 : -1) : 1;
+        }
+        // 服务器ID通常是递增的数字，长度不同时较短的较小
+        if (idA.length() != idB.length()) {
+            return Integer.compare(idA.length(), idB.length());
+        }
+        return idA.compareTo(idB);
+    }
+}
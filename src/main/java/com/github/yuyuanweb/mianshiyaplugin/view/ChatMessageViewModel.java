@@ -0,0 +1,112 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+import com.github.yuyuanweb.mianshiyaplugin.service.FishChatService;
+
+import javax.swing.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 聊天消息的渲染数据
+ * 在后台线程中准备好（时间格式化、内容解析、文本排版、头像句柄），EDT 上只负责创建组件
+ */
+public class ChatMessageViewModel {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final FishChatService.ChatMessage message;
+    private final String senderName;
+    private final long timestamp;
+    private final String time;
+    private final ChatContent content;
+    private final ChatTextLayout textLayout;
+    private final boolean admin;
+    private final String avatarInitial;
+    private final CompletableFuture<ImageIcon> avatar;
+
+    private ChatMessageViewModel(FishChatService.ChatMessage message, String senderName, long timestamp,
+                                 ChatContent content, boolean admin, CompletableFuture<ImageIcon> avatar) {
+        this.message = message;
+        this.senderName = senderName == null || senderName.isEmpty() ? "未知用户" : senderName;
+        this.timestamp = timestamp;
+        this.time = TIME_FORMATTER.format(Instant.ofEpochMilli(timestamp));
+        this.content = content;
+        this.textLayout = content.hasText() ? ChatTextLayout.of(content) : null;
+        if (textLayout != null) {
+            // 在后台线程中按当前宽度预先排版，EDT 上布局时直接命中缓存
+            textLayout.prefetch(UIManager.getFont("Label.font"));
+        }
+        this.admin = admin;
+        this.avatarInitial = this.senderName.substring(0, 1).toUpperCase();
+        this.avatar = avatar;
+    }
+
+    /**
+     * 准备消息的渲染数据，可在任意线程调用
+     * @param avatarCache 为 null 时不加载头像
+     */
+    public static ChatMessageViewModel prepare(FishChatService.ChatMessage message, ChatAvatarCache avatarCache) {
+        FishChatService.Sender sender = message.getSender();
+        String avatarUrl = sender.getAvatar();
+        CompletableFuture<ImageIcon> avatar = avatarCache != null && avatarUrl != null && !avatarUrl.isEmpty()
+                ? avatarCache.get(avatarUrl)
+                : null;
+        return new ChatMessageViewModel(message, sender.getName(), message.getEpochMillis(),
+                message.getParsedContent(), sender.isAdmin(), avatar);
+    }
+
+    public FishChatService.ChatMessage getMessage() {
+        return message;
+    }
+
+    public String getSenderName() {
+        return senderName;
+    }
+
+    /**
+     * 毫秒时间戳
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 格式化后的显示时间
+     */
+    public String getTime() {
+        return time;
+    }
+
+    public ChatContent getContent() {
+        return content;
+    }
+
+    /**
+     * 文本排版，没有文本内容时为 null
+     */
+    public ChatTextLayout getTextLayout() {
+        return textLayout;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * 没有头像或头像加载失败时显示的首字母
+     */
+    public String getAvatarInitial() {
+        return avatarInitial;
+    }
+
+    /**
+     * 头像加载句柄，没有头像时为 null
+     */
+    public CompletableFuture<ImageIcon> getAvatar() {
+        return avatar;
+    }
+}
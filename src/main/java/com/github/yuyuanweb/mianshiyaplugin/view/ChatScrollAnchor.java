@@ -0,0 +1,126 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * 聊天滚动锚点
+ * 记录当前是"停留在底部"还是"锚定在某条消息的某个偏移处"，
+ * 并在视口尺寸变化（即布局真正完成）时一次性恢复位置，取代多层延时滚动
+ */
+public class ChatScrollAnchor {
+
+    /**
+     * 距底部多少像素以内视为在底部
+     */
+    private static final int BOTTOM_THRESHOLD = 30;
+
+    private final JViewport viewport;
+    private final JComponent content;
+
+    private boolean stickToBottom = true;
+    private Component anchorComponent;
+    private int anchorOffset;
+
+    private Dimension lastViewSize = new Dimension();
+    private Dimension lastExtentSize = new Dimension();
+    private boolean applying = false;
+
+    public ChatScrollAnchor(JScrollPane scrollPane, JComponent content) {
+        this.viewport = scrollPane.getViewport();
+        this.content = content;
+        viewport.addChangeListener(e -> onViewportChanged());
+    }
+
+    /**
+     * 是否停留在底部
+     */
+    public boolean isStickToBottom() {
+        return stickToBottom;
+    }
+
+    /**
+     * 切换为停留在底部，并立即按当前布局滚动到底部
+     * 如果布局尚未完成，视口尺寸变化后会再次应用
+     */
+    public void scrollToBottom() {
+        stickToBottom = true;
+        anchorComponent = null;
+        apply();
+    }
+
+    /**
+     * 视口变化：尺寸变化说明布局已完成，恢复锚点；仅位置变化说明用户在滚动，记录锚点
+     */
+    private void onViewportChanged() {
+        if (applying) {
+            return;
+        }
+        Dimension viewSize = viewport.getViewSize();
+        Dimension extentSize = viewport.getExtentSize();
+        boolean sizeChanged = !viewSize.equals(lastViewSize) || !extentSize.equals(lastExtentSize);
+        lastViewSize = viewSize;
+        lastExtentSize = extentSize;
+
+        if (sizeChanged) {
+            apply();
+        } else {
+            capture();
+        }
+    }
+
+    /**
+     * 根据当前视口位置记录锚点
+     */
+    private void capture() {
+        Rectangle viewRect = viewport.getViewRect();
+        int bottomPosition = viewport.getViewSize().height - viewRect.height;
+        if (bottomPosition - viewRect.y <= BOTTOM_THRESHOLD) {
+            stickToBottom = true;
+            anchorComponent = null;
+            return;
+        }
+
+        stickToBottom = false;
+        anchorComponent = null;
+        // 以第一个在视口中可见的组件作为锚点
+        for (Component component : content.getComponents()) {
+            if (component.getY() + component.getHeight() > viewRect.y) {
+                anchorComponent = component;
+                anchorOffset = component.getY() - viewRect.y;
+                break;
+            }
+        }
+    }
+
+    /**
+     * 应用锚点
+     */
+    private void apply() {
+        Dimension viewSize = viewport.getViewSize();
+        Dimension extentSize = viewport.getExtentSize();
+        int maxY = Math.max(0, viewSize.height - extentSize.height);
+
+        int targetY;
+        if (stickToBottom) {
+            targetY = maxY;
+        } else if (anchorComponent != null && anchorComponent.getParent() == content) {
+            targetY = anchorComponent.getY() - anchorOffset;
+        } else {
+            // 锚点组件已被移除，保持当前位置
+            targetY = viewport.getViewPosition().y;
+        }
+        targetY = Math.max(0, Math.min(targetY, maxY));
+
+        Point position = viewport.getViewPosition();
+        if (position.y == targetY) {
+            return;
+        }
+        applying = true;
+        try {
+            viewport.setViewPosition(new Point(position.x, targetY));
+        } finally {
+            applying = false;
+        }
+    }
+}
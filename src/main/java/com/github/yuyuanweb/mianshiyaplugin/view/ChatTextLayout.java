@@ -0,0 +1,291 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextHitInfo;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天消息文本的排版结果
+ * 使用 LineBreakMeasurer/TextLayout 自动换行，按字体和宽度档位缓存排版结果，
+ * 宽度在同一档位内变化时不需要重新排版。排版可以在任意线程进行。
+ */
+public class ChatTextLayout {
+
+    /**
+     * 宽度档位，排版宽度向下取整到该值的整数倍
+     */
+    private static final int WIDTH_BUCKET = 16;
+    /**
+     * 每条消息缓存的宽度档位数量
+     */
+    private static final int MAX_CACHED_WIDTHS = 3;
+    /**
+     * 行高相对字号的倍数，与原先 HTML 的 line-height: 1.4 保持一致
+     */
+    private static final float LINE_HEIGHT = 1.4f;
+    private static final Color LINK_COLOR = new Color(59, 130, 246);
+    /**
+     * 排版和绘制统一使用的渲染上下文，保证测量结果与绘制一致
+     */
+    static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    private static final int UNCONSTRAINED_WIDTH = Short.MAX_VALUE;
+
+    /**
+     * 最近一次排版使用的宽度，后台预排版时使用
+     */
+    private static volatile int lastWidth = 0;
+
+    private final String text;
+    private final List<Span> spans;
+    private final Map<Integer, Lines> cache = new LinkedHashMap<Integer, Lines>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Lines> eldest) {
+            return size() > MAX_CACHED_WIDTHS;
+        }
+    };
+    private Font cachedFont;
+
+    private ChatTextLayout(String text, List<Span> spans) {
+        this.text = text;
+        this.spans = spans;
+    }
+
+    /**
+     * 从解析后的内容构建，图片节点不参与排版
+     */
+    public static ChatTextLayout of(ChatContent content) {
+        StringBuilder text = new StringBuilder();
+        List<Span> spans = new ArrayList<>();
+        for (ChatContent.Node node : content.getNodes()) {
+            int start = text.length();
+            switch (node.getType()) {
+                case TEXT:
+                    text.append(node.getValue());
+                    break;
+                case LINK:
+                    text.append(node.getValue());
+                    spans.add(new Span(start, text.length(), node.getValue()));
+                    break;
+                case MENTION:
+                    text.append('@').append(node.getValue());
+                    spans.add(new Span(start, text.length(), null));
+                    break;
+                case EMOJI:
+                    text.append("[表情]");
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new ChatTextLayout(text.toString(), spans);
+    }
+
+    /**
+     * 按最近一次排版的宽度预先排版，供后台线程调用
+     */
+    public void prefetch(Font font) {
+        int width = lastWidth;
+        if (font != null && width > 0) {
+            layout(font, width);
+        }
+    }
+
+    /**
+     * 尚未确定宽度时的排版结果：按最近一次排版的宽度估算，没有时不换行
+     */
+    public Lines layoutEstimated(Font font) {
+        int width = lastWidth;
+        return width > 0 ? layout(font, width) : layout(font, UNCONSTRAINED_WIDTH);
+    }
+
+    /**
+     * 获取指定字体和宽度下的排版结果
+     */
+    public Lines layout(Font font, int width) {
+        int bucket = Math.max(WIDTH_BUCKET, width / WIDTH_BUCKET * WIDTH_BUCKET);
+        if (width < UNCONSTRAINED_WIDTH) {
+            lastWidth = width;
+        }
+        synchronized (cache) {
+            if (!font.equals(cachedFont)) {
+                cache.clear();
+                cachedFont = font;
+            }
+            Lines lines = cache.get(bucket);
+            if (lines == null) {
+                lines = breakLines(font, bucket);
+                cache.put(bucket, lines);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * 指定位置的链接地址，不是链接时返回 null
+     */
+    public String linkAt(int index) {
+        for (Span span : spans) {
+            if (span.url != null && index >= span.start && index < span.end) {
+                return span.url;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按段落分行，空行只占用行高
+     */
+    private Lines breakLines(Font font, int width) {
+        float lineHeight = font.getSize2D() * LINE_HEIGHT;
+        List<Line> lines = new ArrayList<>();
+        float y = 0;
+        float maxAdvance = 0;
+        int paragraphStart = 0;
+        while (paragraphStart <= text.length()) {
+            int paragraphEnd = text.indexOf('\n', paragraphStart);
+            if (paragraphEnd < 0) {
+                paragraphEnd = text.length();
+            }
+            if (paragraphEnd == paragraphStart) {
+                y += lineHeight;
+            } else {
+                LineBreakMeasurer measurer = new LineBreakMeasurer(
+                        paragraph(font, paragraphStart, paragraphEnd).getIterator(), FRC);
+                while (measurer.getPosition() < paragraphEnd - paragraphStart) {
+                    int start = paragraphStart + measurer.getPosition();
+                    TextLayout layout = measurer.nextLayout(width);
+                    float height = Math.max(lineHeight, layout.getAscent() + layout.getDescent() + layout.getLeading());
+                    // 多出的行高平均分配到文字上下
+                    float baseline = y + (height - layout.getAscent() - layout.getDescent()) / 2 + layout.getAscent();
+                    lines.add(new Line(layout, start, y, baseline, height));
+                    maxAdvance = Math.max(maxAdvance, layout.getVisibleAdvance());
+                    y += height;
+                }
+            }
+            paragraphStart = paragraphEnd + 1;
+        }
+        return new Lines(Collections.unmodifiableList(lines), (int) Math.ceil(maxAdvance), (int) Math.ceil(y));
+    }
+
+    /**
+     * 构建单个段落的带格式文本
+     */
+    private AttributedString paragraph(Font font, int start, int end) {
+        AttributedString attributed = new AttributedString(text.substring(start, end));
+        attributed.addAttribute(TextAttribute.FONT, font);
+        for (Span span : spans) {
+            int spanStart = Math.max(span.start, start);
+            int spanEnd = Math.min(span.end, end);
+            if (spanStart >= spanEnd) {
+                continue;
+            }
+            attributed.addAttribute(TextAttribute.FOREGROUND, LINK_COLOR, spanStart - start, spanEnd - start);
+            if (span.url != null) {
+                attributed.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON,
+                        spanStart - start, spanEnd - start);
+            }
+        }
+        return attributed;
+    }
+
+    /**
+     * 链接或@提及的文本区间，url 为 null 表示@提及
+     */
+    private static class Span {
+        private final int start;
+        private final int end;
+        private final String url;
+
+        Span(int start, int end, String url) {
+            this.start = start;
+            this.end = end;
+            this.url = url;
+        }
+    }
+
+    /**
+     * 某个宽度下的全部行
+     */
+    public static class Lines {
+        private final List<Line> lines;
+        private final int width;
+        private final int height;
+
+        Lines(List<Line> lines, int width, int height) {
+            this.lines = lines;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * 最宽一行的宽度
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * 绘制全部行，未设置颜色的文字使用画笔当前颜色
+         */
+        public void draw(Graphics2D g2, float x, float y) {
+            Rectangle clip = g2.getClipBounds();
+            for (Line line : lines) {
+                if (clip != null && (y + line.top > clip.y + clip.height || y + line.top + line.height < clip.y)) {
+                    continue;
+                }
+                line.layout.draw(g2, x, y + line.baseline);
+            }
+        }
+
+        /**
+         * 坐标处的字符在全文中的位置，不在文字上时返回 -1
+         */
+        public int hitTest(float x, float y) {
+            for (Line line : lines) {
+                if (y >= line.top && y < line.top + line.height) {
+                    if (x < 0 || x > line.layout.getAdvance()) {
+                        return -1;
+                    }
+                    TextHitInfo hit = line.layout.hitTestChar(x, y - line.baseline);
+                    return line.start + hit.getCharIndex();
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 单行排版结果
+     */
+    private static class Line {
+        private final TextLayout layout;
+        private final int start;
+        private final float top;
+        private final float baseline;
+        private final float height;
+
+        Line(TextLayout layout, int start, float top, float baseline, float height) {
+            this.layout = layout;
+            this.start = start;
+            this.top = top;
+            this.baseline = baseline;
+            this.height = height;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.intellij.ide.BrowserUtil;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * 聊天消息文本组件
+ * 替代 HTML JLabel，使用 {@link ChatTextLayout} 的缓存排版结果绘制，高度随宽度变化，链接可点击
+ */
+public class ChatTextView extends JComponent {
+
+    private final ChatTextLayout textLayout;
+
+    public ChatTextView(ChatTextLayout textLayout) {
+        this.textLayout = textLayout;
+        setOpaque(false);
+        setAlignmentX(Component.LEFT_ALIGNMENT);
+        updateUI();
+
+        MouseAdapter linkHandler = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                String url = linkAt(e.getPoint());
+                if (url != null) {
+                    BrowserUtil.browse(url);
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setCursor(linkAt(e.getPoint()) != null
+                        ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR)
+                        : Cursor.getDefaultCursor());
+            }
+        };
+        addMouseListener(linkHandler);
+        addMouseMotionListener(linkHandler);
+    }
+
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        setFont(UIManager.getFont("Label.font"));
+        setForeground(UIManager.getColor("Label.foreground"));
+    }
+
+    /**
+     * 按当前宽度排版，尚未布局时按最近一次排版的宽度估算
+     */
+    private ChatTextLayout.Lines lines(int width) {
+        Insets insets = getInsets();
+        return textLayout.layout(getFont(), Math.max(1, width - insets.left - insets.right));
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        // 尚未布局时按最近一次排版的宽度估算，估算不准时由 setBounds 触发重新计算高度
+        ChatTextLayout.Lines lines = getWidth() > 0 ? lines(getWidth()) : textLayout.layoutEstimated(getFont());
+        return new Dimension(lines.getWidth() + insets.left + insets.right,
+                lines.getHeight() + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        Insets insets = getInsets();
+        return new Dimension(insets.left + insets.right, getPreferredSize().height);
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        int oldWidth = getWidth();
+        super.setBounds(x, y, width, height);
+        // 宽度变化导致行数变化时重新布局
+        if (width != oldWidth && width > 0) {
+            Insets insets = getInsets();
+            if (lines(width).getHeight() + insets.top + insets.bottom != height) {
+                revalidate();
+            }
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g2.setColor(getForeground());
+            Insets insets = getInsets();
+            lines(getWidth()).draw(g2, insets.left, insets.top);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private String linkAt(Point point) {
+        Insets insets = getInsets();
+        int index = lines(getWidth()).hitTest(point.x - insets.left, point.y - insets.top);
+        return index < 0 ? null : textLayout.linkAt(index);
+    }
+}
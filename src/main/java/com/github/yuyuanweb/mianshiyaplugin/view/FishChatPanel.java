@@ -1,40 +1,52 @@
 package com.github.yuyuanweb.mianshiyaplugin.view;
 
 import com.github.yuyuanweb.mianshiyaplugin.config.FishChatConfig;
+import com.github.yuyuanweb.mianshiyaplugin.model.ChatContent;
+import com.github.yuyuanweb.mianshiyaplugin.service.ChatSearchIndex;
 import com.github.yuyuanweb.mianshiyaplugin.service.FishChatService;
+import com.github.yuyuanweb.mianshiyaplugin.utils.ThrottledLogger;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.SearchTextField;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTextField;
 import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.text.SimpleDateFormat;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 import java.awt.Desktop;
+import javax.swing.event.DocumentEvent;
 import javax.swing.event.HyperlinkEvent;
 import javax.swing.event.HyperlinkListener;
 import java.net.URI;
 import java.awt.geom.Ellipse2D;
-import java.awt.image.BufferedImage;
 import java.awt.MediaTracker;
 import java.awt.Cursor;
-import javax.imageio.ImageIO;
 
 /**
  * 摸鱼室聊天面板
@@ -42,6 +54,7 @@ import javax.imageio.ImageIO;
  */
 public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable {
     private static final Logger LOG = Logger.getInstance(FishChatPanel.class);
+    private static final ThrottledLogger HOT_LOG = ThrottledLogger.getInstance(FishChatPanel.class);
     
     // 静态实例，用于保持状态
     private static FishChatPanel INSTANCE;
@@ -160,6 +173,63 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         }
     }
 
+    /**
+     * 消息列表面板，宽度跟随视口，消息文本按视口宽度换行
+     */
+    private static class MessagesPanel extends JPanel implements Scrollable {
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return JBUI.scale(16);
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            // 消息较少时填满视口，与普通面板的行为一致
+            return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+        }
+    }
+
+    /**
+     * 本地发送的消息卡片及其渲染数据，面板清空后用于重新插入
+     */
+    private static class LocalCard {
+        private final ChatMessageViewModel viewModel;
+        private final JPanel card;
+
+        private LocalCard(ChatMessageViewModel viewModel, JPanel card) {
+            this.viewModel = viewModel;
+            this.card = card;
+        }
+    }
+
+    /**
+     * 已加入搜索索引、尚未创建卡片的消息
+     */
+    private static class CollapsedMessage {
+        private final FishChatService.ChatMessage message;
+        private final int docId;
+
+        private CollapsedMessage(FishChatService.ChatMessage message, int docId) {
+            this.message = message;
+            this.docId = docId;
+        }
+    }
+
     private final Project project;
     private final JPanel chatMessagesPanel; // 新增消息面板，使用垂直BoxLayout
     private final JBTextField inputField;
@@ -170,15 +240,83 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
     private final JPanel webViewPanel;
     private FishChatService chatService;
     private final JButton connectButton;
-    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
     private final FishChatConfig config;
     private final JBScrollPane chatScrollPane;
+    private final ChatScrollAnchor scrollAnchor;
+    private final ChatImageLoader imageLoader;
+    private final ChatAvatarCache avatarCache = new ChatAvatarCache();
+    
+    // 消息搜索
+    private static final String SEARCH_DOC_KEY = "fishChat.searchDocId";
+    private final ChatSearchIndex searchIndex = new ChatSearchIndex();
+    // 消息按服务器时间戳和ID排序
+    private final ChatMessageOrder messageOrder = new ChatMessageOrder();
+    // 等待服务器确认的本地消息卡片，键为客户端消息ID
+    private final Map<String, LocalCard> pendingCards = new HashMap<>();
+    // 发送失败、等待用户重试或删除的本地消息卡片，键为客户端消息ID
+    private final Map<String, LocalCard> failedCards = new HashMap<>();
+    private static final String STATUS_LABEL_KEY = "fishChat.statusLabel";
+    private final SearchTextField searchField;
+    private final JLabel searchResultLabel;
+    private final Timer searchTimer;
+    private final List<Component> searchMatchCards = new ArrayList<>();
+    private int searchMatchIndex = 0;
+    private boolean searchActive = false;
+    // 历史消息加载代次，用于丢弃被新请求取代的加载结果
+    private int historyLoadGeneration = 0;
+    
+    // 入站消息缓冲，按显示帧（约16ms）合并后在EDT上批量处理
+    private static final int FRAME_INTERVAL_MS = 16;
+    private final ConcurrentLinkedQueue<ChatMessageViewModel> inboundMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean inboundDrainScheduled = new AtomicBoolean(false);
+    private final Timer inboundFrameTimer;
+    // 系统消息等直接添加的组件等待下一帧布局，只在EDT上访问
+    private boolean frameLayoutPending = false;
+    // 本帧插入或移除卡片的最上方位置，之上的行位置不变，只重绘其下方的区域；只在EDT上访问
+    private int changedRowsTop = Integer.MAX_VALUE;
+    
+    // 面板不可见时（工具窗口收起或切换到其他标签页）只缓存消息数据，不创建组件
+    private final ArrayDeque<FishChatService.ChatMessage> hiddenMessages = new ArrayDeque<>();
+    // 重新显示时只为最近的消息创建卡片，更早的消息只加入搜索索引，点击提示行或搜索命中时再创建
+    private static final int HIDDEN_RENDER_LIMIT = 50;
+    private final List<CollapsedMessage> collapsedMessages = new ArrayList<>();
+    private JPanel collapsedRow;
+    private final AtomicInteger unreadCount = new AtomicInteger(0);
+    private final AtomicBoolean unreadNotifyScheduled = new AtomicBoolean(false);
+    private volatile boolean panelShowing = false;
+    private IntConsumer unreadListener;
+    
+    // 刷屏保护：入站消息速率超过阈值时切换为精简显示，速率连续多个窗口低于阈值一半时恢复
+    private static final int FLOOD_WINDOW_MS = 1000;
+    private static final int FLOOD_CALM_WINDOWS = 3;
+    private volatile boolean compactMode = false;
+    private final AtomicInteger inboundArrivals = new AtomicInteger(0);
+    private long floodWindowStart = 0;
+    private int floodWindowCount = 0;
+    private int calmWindows = 0;
+    private int compactMessageCount = 0;
+    private final JLabel floodBanner;
+    private final Timer floodCheckTimer;
 
     private FishChatPanel(Project project) {
         super(new BorderLayout());
         this.project = project;
         this.config = new FishChatConfig(project);
         this.setBorder(JBUI.Borders.empty(0)); // 移除外边距，使面板填满整个工具窗口
+        
+        // 入站消息帧定时器，只触发一次，由handleChatMessage按需重新启动
+        inboundFrameTimer = new Timer(FRAME_INTERVAL_MS, e -> drainInboundMessages());
+        inboundFrameTimer.setRepeats(false);
+        
+        // 精简显示期间没有新消息时也需要按时检查速率，以便及时恢复
+        floodCheckTimer = new Timer(FLOOD_WINDOW_MS, e -> updateFloodMode(0));
+        
+        // 监听面板显示状态，不可见时切换为只缓存消息数据
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                onShowingChanged(isShowing());
+            }
+        });
 
         // 创建聊天面板
         chatPanel = new JPanel(new BorderLayout());
@@ -186,7 +324,7 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         chatPanel.setBackground(UIManager.getColor("Panel.background")); // 使用IDE主题颜色
 
         // 创建消息面板，使用垂直布局
-        chatMessagesPanel = new JPanel();
+        chatMessagesPanel = new MessagesPanel();
         chatMessagesPanel.setLayout(new BoxLayout(chatMessagesPanel, BoxLayout.Y_AXIS));
         chatMessagesPanel.setBorder(JBUI.Borders.empty(5));
         chatMessagesPanel.setBackground(UIManager.getColor("Panel.background")); // 使用IDE主题颜色
@@ -197,29 +335,11 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         chatScrollPane.setBorder(BorderFactory.createEmptyBorder());
         chatScrollPane.getViewport().setBackground(UIManager.getColor("Panel.background")); // 使用IDE主题颜色
         
-        // 添加滚动条监听器，检测用户是否手动滚动
-        chatScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
-            if (!e.getValueIsAdjusting()) {
-                // 获取滚动条位置信息
-                JScrollBar scrollBar = (JScrollBar) e.getSource();
-                int value = scrollBar.getValue();
-                int extent = scrollBar.getVisibleAmount();
-                int maximum = scrollBar.getMaximum();
-                int bottomPosition = maximum - extent;
-                
-                // 更新shouldScrollToBottom标志，根据滚动条位置判断
-                boolean nearBottom = (bottomPosition - value <= 30);
-                
-                // 只有当状态变化时才记录日志
-                if (shouldScrollToBottom != nearBottom) {
-                    LOG.info("滚动条位置变化: value=" + value + ", max=" + maximum + 
-                            ", extent=" + extent + ", 距底部=" + (bottomPosition - value) + 
-                            ", 自动滚动=" + nearBottom);
-                }
-                
-                shouldScrollToBottom = nearBottom;
-            }
-        });
+        // 滚动锚点：在布局完成后保持底部或当前阅读位置
+        scrollAnchor = new ChatScrollAnchor(chatScrollPane, chatMessagesPanel);
+        
+        // 图片懒加载器：只加载已启用且位于视口附近的图片
+        imageLoader = new ChatImageLoader(chatScrollPane);
         
         // 创建输入区域
         JPanel inputPanel = new JPanel(new BorderLayout(5, 0));
@@ -285,9 +405,44 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         statusPanel.add(statusLabel, BorderLayout.WEST);
         statusPanel.add(statusRightPanel, BorderLayout.EAST);
         
+        // 创建搜索栏：输入停顿后过滤消息，回车在匹配的消息之间跳转
+        searchField = new SearchTextField(false);
+        searchField.getTextEditor().getEmptyText().setText("搜索消息，支持 from:用户名 since:1h");
+        searchResultLabel = new JLabel("");
+        searchResultLabel.setForeground(new Color(150, 150, 150));
+        searchTimer = new Timer(150, e -> applySearchFilter());
+        searchTimer.setRepeats(false);
+        searchField.addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchField.getTextEditor().addActionListener(e -> jumpToPreviousMatch());
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(searchResultLabel, BorderLayout.EAST);
+        statusPanel.add(searchPanel, BorderLayout.SOUTH);
+        
+        // 刷屏提示条，只在精简显示时可见，点击回到最新消息
+        floodBanner = new JLabel();
+        floodBanner.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        floodBanner.setForeground(new Color(59, 130, 246));
+        floodBanner.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        floodBanner.setVisible(false);
+        floodBanner.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                scrollAnchor.scrollToBottom();
+            }
+        });
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(floodBanner, BorderLayout.NORTH);
+        bottomPanel.add(inputPanel, BorderLayout.CENTER);
+        
         // 添加组件到聊天面板
         chatPanel.add(chatScrollPane, BorderLayout.CENTER);
-        chatPanel.add(inputPanel, BorderLayout.SOUTH);
+        chatPanel.add(bottomPanel, BorderLayout.SOUTH);
         chatPanel.add(statusPanel, BorderLayout.NORTH);
         
         // 直接添加聊天面板到主面板，不使用分割面板
@@ -313,7 +468,7 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         dialogPanel.setBorder(JBUI.Borders.empty(10));
         
         // 创建设置面板
-        JPanel settingsPanel = new JPanel(new GridLayout(3, 2, 10, 10));
+        JPanel settingsPanel = new JPanel(new GridLayout(5, 2, 10, 10));
         settingsPanel.setBorder(JBUI.Borders.empty(5));
         
         // Token 设置
@@ -326,7 +481,6 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         JLabel avatarLabel = new JLabel("显示用户头像:");
         JCheckBox avatarCheckBox = new JCheckBox("", config.isShowAvatar());
         // 记录当前设置状态
-        LOG.info("设置对话框 - 当前头像显示设置: " + config.isShowAvatar());
         settingsPanel.add(avatarLabel);
         settingsPanel.add(avatarCheckBox);
         
@@ -334,10 +488,21 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         JLabel imagesLabel = new JLabel("显示聊天图片:");
         JCheckBox imagesCheckBox = new JCheckBox("", config.isShowImages());
         // 记录当前设置状态
-        LOG.info("设置对话框 - 当前图片显示设置: " + config.isShowImages());
         settingsPanel.add(imagesLabel);
         settingsPanel.add(imagesCheckBox);
         
+        // 刷屏阈值设置
+        JLabel floodLabel = new JLabel("刷屏阈值(条/秒):");
+        JSpinner floodSpinner = new JSpinner(new SpinnerNumberModel(config.getFloodThreshold(), 1, 1000, 1));
+        settingsPanel.add(floodLabel);
+        settingsPanel.add(floodSpinner);
+        
+        // 二进制帧设置（需要服务器支持，不支持时自动使用JSON）
+        JLabel binaryFramesLabel = new JLabel("紧凑二进制帧(实验):");
+        JCheckBox binaryFramesCheckBox = new JCheckBox("", config.isBinaryFrames());
+        settingsPanel.add(binaryFramesLabel);
+        settingsPanel.add(binaryFramesCheckBox);
+        
         // 添加设置面板到对话框面板
         dialogPanel.add(settingsPanel, BorderLayout.CENTER);
         
@@ -363,6 +528,9 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
             
             config.setShowAvatar(avatarCheckBox.isSelected());
             config.setShowImages(imagesCheckBox.isSelected());
+            config.setFloodThreshold((Integer) floodSpinner.getValue());
+            // 帧编码在下次连接时生效
+            config.setBinaryFrames(binaryFramesCheckBox.isSelected());
             
             // 如果Token变更，需要重新连接
             if (chatService != null && chatService.isConnected() && tokenChanged) {
@@ -438,6 +606,7 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         // 创建聊天服务
         final String finalToken = token;
         chatService = new FishChatService(finalToken);
+        chatService.setBinaryFramesEnabled(config.isBinaryFrames());
         
         // 设置监听器
         setupChatServiceListeners();
@@ -475,117 +644,250 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
     
     /**
      * 加载历史消息
+     * 在后台线程获取历史消息并准备好渲染数据，然后在EDT上一次性插入
      */
     private void loadHistoryMessages() {
-        if (chatService == null || !chatService.isConnected()) {
+        final FishChatService service = chatService;
+        if (service == null || !service.isConnected()) {
             appendSystemMessage("未连接到服务器，无法加载历史消息");
             return;
         }
         
-        try {
-            // 显示加载中消息
-            appendSystemMessage("正在加载历史消息...");
-            
-            // 清空当前消息面板
-            chatMessagesPanel.removeAll();
-            chatMessagesPanel.revalidate();
-            chatMessagesPanel.repaint();
-            
-            // 获取历史消息
-            List<FishChatService.ChatMessage> messages = chatService.getHistoryMessages(50);
-            
-            if (messages.isEmpty()) {
-                appendSystemMessage("没有历史消息");
-                return;
-            }
-            
-            // 反转消息顺序，确保按时间顺序显示
-            List<FishChatService.ChatMessage> sortedMessages = new ArrayList<>(messages);
-            java.util.Collections.reverse(sortedMessages);
-            
-            appendSystemMessage("获取到 " + sortedMessages.size() + " 条历史消息，正在显示...");
-            
-            // 使用计数器来跟踪消息显示进度
-            final int[] counter = {0};
-            final int totalMessages = sortedMessages.size();
-            
-            // 使用Timer分批添加消息，避免UI卡顿
-            Timer messageTimer = new Timer(10, null);
-            messageTimer.addActionListener(e -> {
-                if (counter[0] < totalMessages) {
-                    FishChatService.ChatMessage message = sortedMessages.get(counter[0]);
+        // 显示加载中消息
+        appendSystemMessage("正在加载历史消息...");
+        
+        // 新的加载请求使之前未完成的加载失效
+        final int generation = ++historyLoadGeneration;
+        final ChatAvatarCache avatars = config.isShowAvatar() ? avatarCache : null;
+        
+        SwingWorker<List<ChatMessageViewModel>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<ChatMessageViewModel> doInBackground() throws Exception {
+                // 获取历史消息（按时间降序）
+                List<FishChatService.ChatMessage> messages = service.getHistoryMessages(50);
+                
+                // 反转消息顺序，确保按时间顺序显示，同时准备渲染数据
+                List<ChatMessageViewModel> viewModels = new ArrayList<>(messages.size());
+                for (int i = messages.size() - 1; i >= 0; i--) {
+                    FishChatService.ChatMessage message = messages.get(i);
                     if (message != null && message.getSender() != null) {
-                        String senderName = message.getSender().getName();
-                        String content = message.getContent();
-                        String time = formatTime(message.getTimestamp());
-                        
-                        // 直接添加消息卡片到面板，不使用appendUserMessageCard方法
-                        // 这样可以避免异步处理导致的问题
-                        JPanel messageCard = createMessageCard(senderName, content, time, message.getSender().isAdmin(), message.getSender().getAvatar());
-                        chatMessagesPanel.add(messageCard);
-                        chatMessagesPanel.add(Box.createVerticalStrut(8)); // 添加间距
-                    }
-                    
-                    counter[0]++;
-                    
-                    // 每添加10条消息更新一次UI
-                    if (counter[0] % 10 == 0 || counter[0] == totalMessages) {
-                        chatMessagesPanel.revalidate();
-                        chatMessagesPanel.repaint();
-                    }
-                    
-                    // 所有消息添加完成
-                    if (counter[0] == totalMessages) {
-                        messageTimer.stop();
-                        
-                        // 加载完历史消息后总是滚动到底部
-                        LOG.info("历史消息加载完成，滚动到底部");
-                        
-                        // 使用Timer延迟执行，确保在UI更新后滚动
-                        Timer scrollTimer = new Timer(100, evt -> {
-                            JScrollBar vertical = chatScrollPane.getVerticalScrollBar();
-                            vertical.setValue(vertical.getMaximum());
-                            
-                            // 再次延迟执行，确保滚动到底部
-                            SwingUtilities.invokeLater(() -> {
-                                vertical.setValue(vertical.getMaximum());
-                                
-                                LOG.info("完成历史消息滚动: value=" + vertical.getValue() + 
-                                        ", max=" + vertical.getMaximum());
-                                
-                                // 显示加载完成消息
-                                appendSystemMessage("历史消息加载完成");
-                            });
-                            
-                            ((Timer)evt.getSource()).stop();
-                        });
-                        scrollTimer.setRepeats(false);
-                        scrollTimer.start();
+                        viewModels.add(ChatMessageViewModel.prepare(message, avatars));
                     }
-                } else {
-                    messageTimer.stop();
                 }
-            });
-            
-            // 启动定时器
-            messageTimer.start();
+                return viewModels;
+            }
             
-        } catch (Exception e) {
-            e.printStackTrace();
-            appendSystemMessage("加载历史消息失败: " + e.getMessage());
+            @Override
+            protected void done() {
+                if (generation != historyLoadGeneration) {
+                    return;
+                }
+                List<ChatMessageViewModel> viewModels;
+                try {
+                    viewModels = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    LOG.warn("加载历史消息失败: " + cause.getMessage(), cause);
+                    appendSystemMessage("加载历史消息失败: " + cause.getMessage());
+                    return;
+                }
+                
+                // 清空当前消息面板，一次性插入所有历史消息，只触发一次布局
+                chatMessagesPanel.removeAll();
+                searchIndex.clear();
+                messageOrder.clear();
+                // 历史消息替换当前显示的内容，未显示的较早消息一并丢弃
+                collapsedMessages.clear();
+                collapsedRow = null;
+                // 历史中已有的本地消息带有 clientId，插入时替换待确认的卡片
+                for (ChatMessageViewModel viewModel : viewModels) {
+                    addMessageCard(viewModel);
+                }
+                // 仍在等待确认或发送失败的本地消息按时间重新插入
+                restoreLocalCards(pendingCards);
+                restoreLocalCards(failedCards);
+                applySearchFilter();
+                chatMessagesPanel.revalidate();
+                chatMessagesPanel.repaint();
+                
+                // 加载完历史消息后总是滚动到底部，布局完成后由滚动锚点再次校正
+                scrollAnchor.scrollToBottom();
+                
+                if (viewModels.isEmpty()) {
+                    appendSystemMessage("没有历史消息");
+                } else {
+                    HOT_LOG.debug(() -> "历史消息加载完成，共 " + viewModels.size() + " 条");
+                    appendSystemMessage("历史消息加载完成");
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * 创建消息卡片并按时间顺序插入消息面板，同时加入搜索索引
+     */
+    private JPanel addMessageCard(ChatMessageViewModel viewModel) {
+        // 刷屏时使用精简消息行，自己发送的消息始终完整显示
+        JPanel messageCard = compactMode && !viewModel.getMessage().isPending() && viewModel.getMessage().getClientId() == null
+                ? createCompactRow(viewModel)
+                : createMessageCard(viewModel);
+        // 自己发送的消息收到服务器回显时，替换待确认的本地卡片
+        String clientId = viewModel.getMessage().getClientId();
+        LocalCard pending = clientId != null ? pendingCards.remove(clientId) : null;
+        if (pending != null) {
+            markRowsChanged(pending.card.getY());
+            messageOrder.remove(pending.card);
+            chatMessagesPanel.remove(pending.card);
+        }
+        insertCard(viewModel, messageCard);
+        return messageCard;
+    }
+    
+    /**
+     * 把卡片加入搜索索引，并按时间顺序插入消息面板
+     */
+    private void insertCard(ChatMessageViewModel viewModel, JPanel messageCard) {
+        insertCard(viewModel, messageCard, searchIndex.add(viewModel.getMessage(), viewModel.getTimestamp()));
+    }
+    
+    private void insertCard(ChatMessageViewModel viewModel, JPanel messageCard, int docId) {
+        messageCard.putClientProperty(SEARCH_DOC_KEY, docId);
+        // 迟到的消息插入到后一条消息的卡片之前，按顺序到达的消息直接追加
+        JComponent successor = messageOrder.insert(viewModel, messageCard);
+        if (successor == null) {
+            int count = chatMessagesPanel.getComponentCount();
+            Component last = count > 0 ? chatMessagesPanel.getComponent(count - 1) : null;
+            markRowsChanged(last != null ? last.getY() + last.getHeight() : 0);
+            chatMessagesPanel.add(messageCard);
+        } else {
+            // 新卡片占据后一条消息原来的位置
+            markRowsChanged(successor.getY());
+            chatMessagesPanel.add(messageCard, chatMessagesPanel.getComponentZOrder(successor));
+        }
+    }
+    
+    private void markRowsChanged(int y) {
+        changedRowsTop = Math.min(changedRowsTop, y);
+    }
+    
+    /**
+     * 消息面板清空后重新插入本地消息卡片
+     */
+    private void restoreLocalCards(Map<String, LocalCard> localCards) {
+        for (LocalCard local : localCards.values()) {
+            insertCard(local.viewModel, local.card);
         }
     }
     
+    /**
+     * 本地消息发送失败或超时未确认：卡片标记为发送失败，提供重试和删除
+     */
+    private void markSendFailed(String clientId) {
+        LocalCard local = pendingCards.remove(clientId);
+        if (local == null) {
+            return;
+        }
+        failedCards.put(clientId, local);
+        JLabel statusLabel = (JLabel) local.card.getClientProperty(STATUS_LABEL_KEY);
+        if (statusLabel == null) {
+            return;
+        }
+        statusLabel.setText(local.viewModel.getTime() + " 发送失败");
+        statusLabel.setForeground(new Color(200, 80, 80));
+        Container statusPanel = statusLabel.getParent();
+        statusPanel.add(createCardAction("重试", () -> {
+            removeFailedCard(clientId);
+            sendChatMessage(local.viewModel.getMessage().getContent());
+        }));
+        statusPanel.add(createCardAction("删除", () -> removeFailedCard(clientId)));
+        statusPanel.revalidate();
+        statusPanel.repaint();
+    }
+    
+    private JButton createCardAction(String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.setForeground(new Color(59, 130, 246));
+        button.setBorderPainted(false);
+        button.setContentAreaFilled(false);
+        button.setFocusPainted(false);
+        button.setMargin(JBUI.emptyInsets());
+        button.setFont(button.getFont().deriveFont(10.0f));
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+    
+    private void removeFailedCard(String clientId) {
+        LocalCard local = failedCards.remove(clientId);
+        if (local != null) {
+            messageOrder.remove(local.card);
+            chatMessagesPanel.remove(local.card);
+            requestFrameLayout();
+        }
+    }
+    
+    /**
+     * 按搜索框内容过滤消息，只显示匹配的消息卡片
+     */
+    private void applySearchFilter() {
+        BitSet matches = searchIndex.search(searchField.getText());
+        searchActive = matches != null;
+        if (matches != null) {
+            // 命中未显示的较早消息时创建它们的卡片，创建后再次过滤
+            for (CollapsedMessage collapsed : collapsedMessages) {
+                if (matches.get(collapsed.docId)) {
+                    expandCollapsedMessages();
+                    break;
+                }
+            }
+        }
+        searchMatchCards.clear();
+        for (Component component : chatMessagesPanel.getComponents()) {
+            Object docId = ((JComponent) component).getClientProperty(SEARCH_DOC_KEY);
+            boolean visible;
+            if (matches == null) {
+                visible = true;
+            } else {
+                visible = docId instanceof Integer && matches.get((Integer) docId);
+            }
+            if (visible && matches != null) {
+                searchMatchCards.add(component);
+            }
+            if (component.isVisible() != visible) {
+                component.setVisible(visible);
+            }
+        }
+        searchMatchIndex = searchMatchCards.size();
+        searchResultLabel.setText(searchActive ? searchMatchCards.size() + " 条匹配" : "");
+        chatMessagesPanel.revalidate();
+        chatMessagesPanel.repaint();
+    }
+    
+    /**
+     * 跳转到上一条匹配的消息（从最新的开始向前）
+     */
+    private void jumpToPreviousMatch() {
+        if (!searchActive || searchMatchCards.isEmpty()) {
+            return;
+        }
+        searchMatchIndex = searchMatchIndex <= 0 ? searchMatchCards.size() - 1 : searchMatchIndex - 1;
+        Component card = searchMatchCards.get(searchMatchIndex);
+        chatMessagesPanel.scrollRectToVisible(card.getBounds());
+        searchResultLabel.setText((searchMatchIndex + 1) + "/" + searchMatchCards.size());
+    }
+    
     /**
      * 创建消息卡片（同步版本，不使用SwingUtilities.invokeLater）
      */
-    private JPanel createMessageCard(String username, String message, String time, boolean isAdmin, String avatar) {
+    private JPanel createMessageCard(ChatMessageViewModel viewModel) {
+        ChatContent content = viewModel.getContent();
         // 创建消息卡片面板
         JPanel messageCard = new JPanel(new BorderLayout(10, 0));
         messageCard.setBackground(UIManager.getColor("EditorPane.background"));
         
-        // 移除边框，只保留内边距
-        messageCard.setBorder(BorderFactory.createEmptyBorder(3, 3, 5, 3));
+        // 移除边框，只保留内边距（底部包含与下一条消息的8像素间距）
+        messageCard.setBorder(BorderFactory.createEmptyBorder(3, 3, 13, 3));
         
         // 用户信息区域（头像和名称）
         JPanel userInfoPanel = new JPanel(new BorderLayout(8, 0));
@@ -600,104 +902,33 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
             JPanel avatarPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 4));
             avatarPanel.setOpaque(false);
             
-                    // 检查并记录头像显示设置
-        boolean showAvatar = config.isShowAvatar();
-        LOG.info("创建消息卡片: 用户=" + username + ", 显示头像设置=" + showAvatar);
-        
         // 如果配置允许显示头像
-        if (showAvatar) {
+        if (config.isShowAvatar()) {
             // 使用自定义圆形头像组件
             CircleAvatarLabel avatarLabel = new CircleAvatarLabel();
+            avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            avatarLabel.setForeground(Color.WHITE);
             avatarPanel.add(avatarLabel);
             
-            // 尝试加载头像
-            if (avatar != null && !avatar.isEmpty()) {
+            CompletableFuture<ImageIcon> avatar = viewModel.getAvatar();
+            if (avatar != null) {
                 // 先设置一个默认的文字头像作为加载状态
                 avatarLabel.setText("⌛");
-                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
                 avatarLabel.setBackground(new Color(120, 120, 120));
-                avatarLabel.setForeground(Color.WHITE);
                 
-                try {
-                    // 异步加载头像
-                    new Thread(() -> {
-                        try {
-                            URL url = new URL(avatar);
-                            // 使用ImageIO直接从URL加载图像
-                            // 注意：ImageIO.read()不支持GIF动画，但可以读取第一帧
-                            BufferedImage bufferedImage = ImageIO.read(url);
-                            
-                            if (bufferedImage != null) {
-                                // 如果成功读取了图像，创建ImageIcon
-                                ImageIcon originalIcon = new ImageIcon(bufferedImage);
-                                
-                                SwingUtilities.invokeLater(() -> {
-                                    // 设置原始图标到自定义标签
-                                    avatarLabel.setText(null); // 清除文字
-                                    avatarLabel.setOriginalIcon(originalIcon);
-                                    // 仅在头像加载完成后更新UI，避免频繁刷新
-                                    updateUILater();
-                                });
-                            } else {
-                                // ImageIO无法读取图像，尝试使用Toolkit方法
-                                final Image image = Toolkit.getDefaultToolkit().createImage(url);
-                                MediaTracker tracker = new MediaTracker(avatarLabel);
-                                tracker.addImage(image, 0);
-                                try {
-                                    tracker.waitForID(0, 2000); // 等待最多2秒
-                                } catch (InterruptedException ignored) {}
-                                
-                                if (!tracker.isErrorAny()) {
-                                    // 创建静态图像
-                                    BufferedImage staticImg = new BufferedImage(
-                                        Math.max(1, image.getWidth(null)), 
-                                        Math.max(1, image.getHeight(null)), 
-                                        BufferedImage.TYPE_INT_ARGB);
-                                    Graphics2D g2d = staticImg.createGraphics();
-                                    g2d.drawImage(image, 0, 0, null);
-                                    g2d.dispose();
-                                    
-                                    ImageIcon originalIcon = new ImageIcon(staticImg);
-                                    
-                                    SwingUtilities.invokeLater(() -> {
-                                        // 设置原始图标到自定义标签
-                                        avatarLabel.setText(null); // 清除文字
-                                        avatarLabel.setOriginalIcon(originalIcon);
-                                        // 仅在头像加载完成后更新UI，避免频繁刷新
-                                        updateUILater();
-                                    });
-                                } else {
-                                    throw new Exception("无法加载图像");
-                                }
-                            }
-                        } catch (Exception e) {
-                            // 头像加载失败，使用默认文字头像
-                            SwingUtilities.invokeLater(() -> {
-                                avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                                avatarLabel.setBackground(new Color(100, 149, 237));
-                                avatarLabel.setForeground(Color.WHITE);
-                                // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
-                                // 仅在头像设置完成后更新UI
-                                updateUILater();
-                            });
-                        }
-                    }).start();
-                } catch (Exception e) {
-                    // 头像加载失败，使用默认文字头像
-                    avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                    avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                    avatarLabel.setBackground(new Color(100, 149, 237));
-                    avatarLabel.setForeground(Color.WHITE);
-                    // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
-                }
+                // 头像由缓存统一加载，相同地址的头像只下载一次
+                avatar.whenComplete((icon, error) -> SwingUtilities.invokeLater(() -> {
+                    if (icon != null) {
+                        avatarLabel.setText(null); // 清除文字
+                        avatarLabel.setOriginalIcon(icon);
+                    } else {
+                        // 头像加载失败，使用默认文字头像
+                        setInitialAvatar(avatarLabel, viewModel);
+                    }
+                }));
             } else {
                 // 没有头像URL，显示首字母
-                avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                avatarLabel.setBackground(new Color(100, 149, 237));
-                avatarLabel.setForeground(Color.WHITE);
-                // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
+                setInitialAvatar(avatarLabel, viewModel);
             }
         } else {
             // 如果不显示头像，添加一个空白占位符以保持布局一致
@@ -709,17 +940,25 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         userInfoPanel.add(avatarPanel, BorderLayout.WEST);
         
                     // 用户名 - 不显示管理员标记，使用更隐蔽的颜色
-            String displayName = username;  // 不再添加[管理员]前缀
+            String displayName = viewModel.getSenderName();  // 不再添加[管理员]前缀
             JLabel nameLabel = new JLabel(displayName);
             // 使用更隐蔽的颜色，避免红色等醒目颜色
-            nameLabel.setForeground(isAdmin ? new Color(70, 110, 126) : new Color(90, 120, 140));
+            nameLabel.setForeground(viewModel.isAdmin() ? new Color(70, 110, 126) : new Color(90, 120, 140));
             nameLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 5));
             nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD));
         nameTimePanel.add(nameLabel);
         
         // 时间标签
-        JLabel timeLabel = new JLabel(time);
+        JLabel timeLabel = new JLabel(viewModel.getMessage().isPending() ? viewModel.getTime() + " 发送中..." : viewModel.getTime());
+        if (viewModel.getMessage().isPending()) {
+            // 发送失败时在时间标签上显示状态
+            messageCard.putClientProperty(STATUS_LABEL_KEY, timeLabel);
+        }
         timeLabel.setForeground(new Color(150, 150, 150));
+        long latencyMs = viewModel.getMessage().getDeliveryLatencyMs();
+        if (latencyMs >= 0) {
+            timeLabel.setToolTipText("送达耗时 " + latencyMs + "ms");
+        }
         timeLabel.setHorizontalAlignment(SwingConstants.LEFT);
         timeLabel.setFont(timeLabel.getFont().deriveFont(10.0f));
         nameTimePanel.add(timeLabel);
@@ -731,34 +970,19 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         contentPanel.setOpaque(false);
         contentPanel.setBorder(BorderFactory.createEmptyBorder(2, 3, 5, 5));
         
-        // 提取消息中的图片URL
-        List<String> imageUrls = new ArrayList<>();
-        if (message.contains("[img]")) {
-            Pattern pattern = Pattern.compile("\\[img\\]([^\\[]+)\\[\\/img\\]");
-            java.util.regex.Matcher matcher = pattern.matcher(message);
-            while (matcher.find()) {
-                imageUrls.add(matcher.group(1));
-            }
-        }
-        
         // 创建内容面板
         JPanel messageContentPanel = new JPanel();
         messageContentPanel.setLayout(new BoxLayout(messageContentPanel, BoxLayout.Y_AXIS));
         messageContentPanel.setOpaque(false);
         
-        // 处理纯文本部分（替换掉图片标签）
-        String textContent = message.replaceAll("\\[img\\][^\\[]+\\[\\/img\\]", "").trim();
-        
-        // 如果有文本内容，添加文本标签
-        if (!textContent.isEmpty()) {
-            JLabel textLabel = new JLabel("<html><div style='width: 100%; line-height: 1.4;'>" + 
-                    textContent.replace("\n", "<br>").replace("<", "&lt;").replace(">", "&gt;") + "</div></html>");
-            textLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
-            textLabel.setForeground(UIManager.getColor("Label.foreground"));
-            textLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-            messageContentPanel.add(textLabel);
+        // 如果有文本内容，添加文本组件（图片单独显示）
+        if (viewModel.getTextLayout() != null) {
+            ChatTextView textView = new ChatTextView(viewModel.getTextLayout());
+            textView.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+            messageContentPanel.add(textView);
         }
         
+        List<String> imageUrls = content.getImageUrls();
         // 处理图片
         if (!imageUrls.isEmpty()) {
             for (String imageUrl : imageUrls) {
@@ -778,53 +1002,22 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
                 imageLink.setCursor(new Cursor(Cursor.HAND_CURSOR));
                 imageLink.setAlignmentX(Component.LEFT_ALIGNMENT);
                 
-                // 创建图片标签（初始隐藏）
-                JLabel imageLabel = new JLabel();
-                imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-                imageLabel.setVisible(config.isShowImages()); // 根据设置决定初始状态
-                
-                // 异步加载图片
-                new Thread(() -> {
-                    try {
-                        URL url = new URL(imageUrl);
-                        BufferedImage originalImage = ImageIO.read(url);
-                        
-                        if (originalImage != null) {
-                            // 调整图片大小，最大宽度200像素
-                            int originalWidth = originalImage.getWidth();
-                            int originalHeight = originalImage.getHeight();
-                            int newWidth = Math.min(originalWidth, 200);
-                            int newHeight = (int) ((double) originalHeight / originalWidth * newWidth);
-                            
-                            // 创建缩放后的图片
-                            Image scaledImage = originalImage.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
-                            ImageIcon icon = new ImageIcon(scaledImage);
-                            
-                            SwingUtilities.invokeLater(() -> {
-                                imageLabel.setIcon(icon);
-                                imagePanel.revalidate();
-                                imagePanel.repaint();
-                            });
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("无法加载图片: " + e.getMessage());
-                        SwingUtilities.invokeLater(() -> {
-                            imageLabel.setText("无法加载图片");
-                        });
-                    }
-                }).start();
+                // 创建固定尺寸的图片占位（根据设置决定初始是否显示）
+                // 只有在显示且位于视口附近时才会真正加载图片
+                JComponent imageSlot = imageLoader.createSlot(imageUrl);
+                imageSlot.setVisible(config.isShowImages());
                 
                 // 添加点击事件，切换图片显示/隐藏
                 imageLink.addActionListener(e -> {
-                    boolean visible = !imageLabel.isVisible();
-                    imageLabel.setVisible(visible);
+                    boolean visible = !imageSlot.isVisible();
+                    imageSlot.setVisible(visible);
                     imagePanel.revalidate();
                     imagePanel.repaint();
                 });
                 
                 // 添加到图片面板
                 imagePanel.add(imageLink);
-                imagePanel.add(imageLabel);
+                imagePanel.add(imageSlot);
                 
                 // 添加到消息内容面板
                 messageContentPanel.add(imagePanel);
@@ -840,6 +1033,16 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         return messageCard;
     }
     
+    /**
+     * 显示首字母文字头像
+     */
+    private static void setInitialAvatar(CircleAvatarLabel avatarLabel, ChatMessageViewModel viewModel) {
+        avatarLabel.setText(viewModel.getAvatarInitial());
+        avatarLabel.setBackground(new Color(100, 149, 237));
+        // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
+        avatarLabel.repaint();
+    }
+    
     /**
      * 断开聊天室连接
      */
@@ -864,6 +1067,9 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
         // 添加消息监听器
         chatService.addMessageListener(this::handleChatMessage);
         
+        // 本地消息发送失败或超时未确认
+        chatService.addSendFailedListener(clientId -> SwingUtilities.invokeLater(() -> markSendFailed(clientId)));
+        
         // 移除用户上线计数显示
         chatService.addUserOnlineListener(users -> {
             // 不再显示在线用户信息
@@ -921,588 +1127,438 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
     
     /**
      * 处理聊天消息
+     * 消息先进入入站缓冲队列，每帧最多在EDT上批量处理一次
      */
     private void handleChatMessage(FishChatService.ChatMessage message) {
         if (message != null && message.getSender() != null) {
-            // 在EDT线程中更新UI
+            if (!panelShowing && bufferHiddenMessage(message)) {
+                return;
+            }
+            // 在消息线程中准备渲染数据，EDT上只创建组件
+            inboundArrivals.incrementAndGet();
+            // 精简显示时不加载头像
+            inboundMessages.offer(ChatMessageViewModel.prepare(message, config.isShowAvatar() && !compactMode ? avatarCache : null));
+            // 只有队列从空闲变为有待处理时才调度一次，避免每条消息都投递到EDT
+            if (inboundDrainScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(inboundFrameTimer::restart);
+            }
+        }
+    }
+    
+    /**
+     * 面板不可见时缓存消息，不准备渲染数据也不调度定时器
+     * @return 是否已缓存；面板在加锁前已变为可见时返回 false，由调用方正常处理
+     */
+    private boolean bufferHiddenMessage(FishChatService.ChatMessage message) {
+        synchronized (hiddenMessages) {
+            if (panelShowing) {
+                return false;
+            }
+            hiddenMessages.addLast(message);
+        }
+        unreadCount.incrementAndGet();
+        // 已有待执行的通知时不再投递，由它读取最新的计数
+        if (unreadNotifyScheduled.compareAndSet(false, true)) {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    // 添加消息到聊天区域
-                    String senderName = message.getSender().getName();
-                    String content = message.getContent();
-                    String time = formatTime(message.getTimestamp());
-                    String avatar = message.getSender().getAvatar();
-                    
-                    // 保存当前滚动条位置信息
-                    JScrollBar vertical = chatScrollPane.getVerticalScrollBar();
-                    int currentValue = vertical.getValue();
-                    int maximum = vertical.getMaximum();
-                    int extent = vertical.getVisibleAmount();
-                    int bottomPosition = maximum - extent;
-                    
-                    // 判断是否在底部或接近底部（30像素以内）
-                    boolean wasAtBottom = (bottomPosition - currentValue <= 30);
-                    
-                    LOG.info("收到新消息前滚动位置: value=" + currentValue + 
-                            ", max=" + maximum + ", extent=" + extent + 
-                            ", 距底部=" + (bottomPosition - currentValue) + 
-                            ", 在底部=" + wasAtBottom);
-                    
-                    // 添加消息卡片
-                    JPanel messageCard = createMessageCard(senderName, content, time, message.getSender().isAdmin(), avatar);
-                    chatMessagesPanel.add(messageCard);
-                    chatMessagesPanel.add(Box.createVerticalStrut(8)); // 添加间距
-                    
-                    // 立即更新UI
-                    chatMessagesPanel.revalidate();
-                    chatMessagesPanel.repaint();
-                    
-                    // 如果之前在底部或接近底部，则滚动到底部
-                    if (wasAtBottom) {
-                        LOG.info("新消息自动滚动到底部");
-                        
-                        // 使用Timer延迟执行，确保在UI更新后滚动
-                        Timer timer = new Timer(50, e -> {
-                            vertical.setValue(vertical.getMaximum());
-                            
-                            // 再次延迟执行，确保滚动到底部
-                            SwingUtilities.invokeLater(() -> {
-                                vertical.setValue(vertical.getMaximum());
-                                
-                                // 第三次尝试，确保滚动到底部
-                                Timer finalTimer = new Timer(50, event -> {
-                                    vertical.setValue(vertical.getMaximum());
-                                    ((Timer)event.getSource()).stop();
-                                    
-                                    LOG.info("完成新消息滚动: value=" + vertical.getValue() + 
-                                            ", max=" + vertical.getMaximum());
-                                });
-                                finalTimer.setRepeats(false);
-                                finalTimer.start();
-                            });
-                            
-                            ((Timer)e.getSource()).stop();
-                        });
-                        timer.setRepeats(false);
-                        timer.start();
-                    } else {
-                        LOG.info("用户正在查看历史消息，不自动滚动");
-                    }
-                    
-                } catch (Exception e) {
-                    LOG.error("处理聊天消息失败: " + e.getMessage(), e);
-                }
+                unreadNotifyScheduled.set(false);
+                notifyUnread(unreadCount.get());
             });
         }
+        return true;
     }
     
     /**
-     * 格式化时间戳
+     * 面板显示状态变化（在EDT上调用）
      */
-    private String formatTime(String timestamp) {
-        try {
-            // 尝试直接解析时间戳
-            long time = 0;
-            if (timestamp.contains("T") && timestamp.contains("Z")) {
-                // ISO 8601格式，如: 2025-06-27T03:33:00.750Z
-                try {
-                    java.time.Instant instant = java.time.Instant.parse(timestamp);
-                    time = instant.toEpochMilli();
-                } catch (Exception e) {
-                    // 解析失败，尝试其他方式
-                }
-            } else {
-                // 尝试直接解析为长整型
-                time = Long.parseLong(timestamp);
+    private void onShowingChanged(boolean showing) {
+        List<FishChatService.ChatMessage> buffered;
+        synchronized (hiddenMessages) {
+            if (panelShowing == showing) {
+                return;
             }
-            
-            return timeFormat.format(new Date(time));
-        } catch (Exception e) {
-            // 所有解析方式都失败，返回当前时间
-            return timeFormat.format(new Date());
+            panelShowing = showing;
+            if (!showing) {
+                return;
+            }
+            buffered = new ArrayList<>(hiddenMessages);
+            hiddenMessages.clear();
+        }
+        unreadCount.set(0);
+        notifyUnread(0);
+        if (buffered.isEmpty()) {
+            return;
         }
+        // 较早的消息只加入搜索索引，由提示行提供加载
+        int collapsedCount = Math.max(0, buffered.size() - HIDDEN_RENDER_LIMIT);
+        if (collapsedCount > 0) {
+            for (FishChatService.ChatMessage message : buffered.subList(0, collapsedCount)) {
+                collapsedMessages.add(new CollapsedMessage(message, searchIndex.add(message, message.getEpochMillis())));
+            }
+            updateCollapsedRow();
+        }
+        List<FishChatService.ChatMessage> recent = buffered.subList(collapsedCount, buffered.size());
+        // 只渲染缓存中最近的消息，在后台准备渲染数据后按正常流程批量添加
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            for (FishChatService.ChatMessage message : recent) {
+                inboundMessages.offer(ChatMessageViewModel.prepare(message, config.isShowAvatar() ? avatarCache : null));
+            }
+            if (inboundDrainScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(inboundFrameTimer::restart);
+            }
+        });
     }
     
     /**
-     * 初始化网页视图
+     * 显示或更新“N 条较早的消息未显示”提示行，提示行添加在当前所有消息之后、重新显示后渲染的消息之前
      */
-    private void initWebView() {
-        // 由于我们不再显示网页视图面板，这个方法可以留空
-        // 或者可以在这里添加一个按钮，点击后在浏览器中打开摸鱼岛网页
-        LOG.info("网页视图已禁用");
+    private void updateCollapsedRow() {
+        if (collapsedRow == null) {
+            collapsedRow = new JPanel(new BorderLayout());
+            collapsedRow.setBackground(UIManager.getColor("EditorPane.background"));
+            collapsedRow.setBorder(BorderFactory.createEmptyBorder(5, 5, 10, 5));
+            collapsedRow.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            collapsedRow.add(new JLabel(), BorderLayout.CENTER);
+            collapsedRow.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    expandCollapsedMessages();
+                }
+            });
+            chatMessagesPanel.add(collapsedRow);
+            collapsedRow.setVisible(!searchActive);
+        }
+        JLabel label = (JLabel) collapsedRow.getComponent(0);
+        label.setText("<html><span style='color: #888888;'>还有 " + collapsedMessages.size()
+                + " 条较早的消息未显示，</span><a href=''>点击加载</a></html>");
+        requestFrameLayout();
     }
     
     /**
-     * 发送消息
+     * 为未显示的较早消息创建卡片，沿用已分配的搜索文档编号
      */
-    private void sendMessage() {
-        String message = inputField.getText().trim();
-        if (!message.isEmpty()) {
-            if (chatService != null && chatService.isConnected()) {
-                // 发送消息到服务器
-                try {
-                    chatService.sendMessage(message);
-                    
-                    // 获取用户信息
-                    FishChatService.UserInfo userInfo = chatService.getUserInfo();
-                    String userName = userInfo != null ? userInfo.getUserName() : "我";
-                    boolean isAdmin = userInfo != null && "admin".equals(userInfo.getUserRole());
-                    String avatar = userInfo != null ? userInfo.getUserAvatar() : "";
-                    
-                    // 本地显示消息 - 直接创建并添加消息卡片，而不是使用appendUserMessageCard
-                    JPanel messageCard = createMessageCard(userName, message, timeFormat.format(new Date()), isAdmin, avatar);
-                    chatMessagesPanel.add(messageCard);
-                    chatMessagesPanel.add(Box.createVerticalStrut(8)); // 添加间距
-                    
-                    // 立即更新UI
-                    chatMessagesPanel.revalidate();
-                    chatMessagesPanel.repaint();
-                    
-                    // 发送消息后总是滚动到底部，确保可以看到自己发送的消息
-                    LOG.info("发送消息后滚动到底部");
-                    
-                    // 使用Timer延迟执行，确保在UI更新后滚动
-                    Timer timer = new Timer(50, e -> {
-                        JScrollBar vertical = chatScrollPane.getVerticalScrollBar();
-                        vertical.setValue(vertical.getMaximum());
-                        
-                        // 再次延迟执行，确保滚动到底部
-                        SwingUtilities.invokeLater(() -> {
-                            vertical.setValue(vertical.getMaximum());
-                            
-                            LOG.info("完成发送消息滚动: value=" + vertical.getValue() + 
-                                    ", max=" + vertical.getMaximum());
-                        });
-                        
-                        ((Timer)e.getSource()).stop();
-                    });
-                    timer.setRepeats(false);
-                    timer.start();
-                } catch (Exception e) {
-                    appendSystemMessage("发送消息失败: " + e.getMessage());
-                }
-            } else {
-                appendSystemMessage("未连接到摸鱼室，无法发送消息。请点击'连接'按钮重新连接。");
-                setConnectionStatus(false, "未连接");
-                connectButton.setText("连接");
+    private void expandCollapsedMessages() {
+        if (collapsedMessages.isEmpty()) {
+            return;
+        }
+        List<CollapsedMessage> expanding = new ArrayList<>(collapsedMessages);
+        collapsedMessages.clear();
+        chatMessagesPanel.remove(collapsedRow);
+        collapsedRow = null;
+        requestFrameLayout();
+        final int generation = historyLoadGeneration;
+        final ChatAvatarCache avatars = config.isShowAvatar() ? avatarCache : null;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            List<ChatMessageViewModel> viewModels = new ArrayList<>(expanding.size());
+            for (CollapsedMessage collapsed : expanding) {
+                viewModels.add(ChatMessageViewModel.prepare(collapsed.message, avatars));
             }
-            
-            // 清空输入框
-            inputField.setText("");
-            // 添加到历史记录
-            messageHistory.add(message);
+            SwingUtilities.invokeLater(() -> {
+                // 期间重新加载了历史消息时文档编号已失效
+                if (generation != historyLoadGeneration) {
+                    return;
+                }
+                for (int i = 0; i < viewModels.size(); i++) {
+                    insertCard(viewModels.get(i), createMessageCard(viewModels.get(i)), expanding.get(i).docId);
+                }
+                if (searchActive) {
+                    applySearchFilter();
+                }
+                requestFrameLayout();
+            });
+        });
+    }
+    
+    private void notifyUnread(int unread) {
+        // 面板已重新显示时忽略过期的计数
+        if (unreadListener != null && (unread == 0 || !panelShowing)) {
+            unreadListener.accept(unread);
         }
     }
     
     /**
-     * 添加系统消息
+     * 设置未读消息数变化的监听器，在EDT上回调
      */
-    private void appendSystemMessage(String message) {
-        SwingUtilities.invokeLater(() -> {
-            JPanel systemMessagePanel = new JPanel(new BorderLayout());
-            systemMessagePanel.setBackground(UIManager.getColor("EditorPane.background"));
-            
-            // 移除边框
-            systemMessagePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-            
-            // 不再需要这个处理，已经移到processHtmlContent方法中
-            
-            String htmlContent = processHtmlContent(message);
-            JLabel messageLabel = new JLabel("<html><head><style type=\"text/css\">" +
-                    "img { max-width: 200px !important; width: 200px !important; height: auto !important; }" +
-                    "</style></head><body style='width: 100%'><span style='color: #888888;'>" + htmlContent + "</span></body></html>");
-            
-            systemMessagePanel.add(messageLabel, BorderLayout.CENTER);
-            
-            // 移除最大尺寸限制
-            chatMessagesPanel.add(systemMessagePanel);
-            chatMessagesPanel.add(Box.createVerticalStrut(5)); // 添加间距
-            
-            // 不在这里调用revalidate和repaint，而是使用批量更新方法
-            updateUILater();
-            
-            // 立即滚动到底部
-            scrollToBottom();
-        });
+    public void setUnreadListener(IntConsumer unreadListener) {
+        this.unreadListener = unreadListener;
     }
     
     /**
-     * 添加用户消息卡片
+     * 在EDT上直接添加组件后调用，与入站消息合并到下一帧统一布局
      */
-    private void appendUserMessageCard(String username, String message, String time, boolean isAdmin, String avatar) {
-        SwingUtilities.invokeLater(() -> {
-            // 创建消息卡片面板
-            JPanel messageCard = new JPanel(new BorderLayout(10, 0));
-            messageCard.setBackground(UIManager.getColor("EditorPane.background"));
-            
-            // 移除边框，只保留内边距
-            messageCard.setBorder(BorderFactory.createEmptyBorder(3, 3, 5, 3));
-            
-            // 用户信息区域（头像和名称）
-            JPanel userInfoPanel = new JPanel(new BorderLayout(8, 0));
-            userInfoPanel.setOpaque(false);
-            // 减小固定宽度，改为自适应内容
-            userInfoPanel.setPreferredSize(null);
-            // 使用水平框布局替代边界布局
-            JPanel nameTimePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 4));
-            nameTimePanel.setOpaque(false);
-            
-                    // 头像区域 - 无论是否显示头像，都保留相同的布局结构
-        JPanel avatarPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 4));
-        avatarPanel.setOpaque(false);
-        
-        // 如果配置允许显示头像
-        if (config.isShowAvatar()) {
-            // 使用自定义圆形头像组件
-            CircleAvatarLabel avatarLabel = new CircleAvatarLabel();
-            avatarPanel.add(avatarLabel);
-            
-            // 尝试加载头像
-            if (avatar != null && !avatar.isEmpty()) {
-                // 先设置一个默认的文字头像作为加载状态
-                avatarLabel.setText("⌛");
-                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                avatarLabel.setBackground(new Color(120, 120, 120));
-                avatarLabel.setForeground(Color.WHITE);
-                
-                try {
-                    // 异步加载头像
-                    new Thread(() -> {
-                        try {
-                            URL url = new URL(avatar);
-                            // 使用ImageIO直接从URL加载图像
-                            // 注意：ImageIO.read()不支持GIF动画，但可以读取第一帧
-                            BufferedImage bufferedImage = ImageIO.read(url);
-                            
-                            if (bufferedImage != null) {
-                                // 如果成功读取了图像，创建ImageIcon
-                                ImageIcon originalIcon = new ImageIcon(bufferedImage);
-                                
-                                SwingUtilities.invokeLater(() -> {
-                                    // 设置原始图标到自定义标签
-                                    avatarLabel.setText(null); // 清除文字
-                                    avatarLabel.setOriginalIcon(originalIcon);
-                                    // 仅在头像加载完成后更新UI，避免频繁刷新
-                                    updateUILater();
-                                });
-                            } else {
-                                // ImageIO无法读取图像，尝试使用Toolkit方法
-                                final Image image = Toolkit.getDefaultToolkit().createImage(url);
-                                MediaTracker tracker = new MediaTracker(avatarLabel);
-                                tracker.addImage(image, 0);
-                                try {
-                                    tracker.waitForID(0, 2000); // 等待最多2秒
-                                } catch (InterruptedException ignored) {}
-                                
-                                if (!tracker.isErrorAny()) {
-                                    // 创建静态图像
-                                    BufferedImage staticImg = new BufferedImage(
-                                        Math.max(1, image.getWidth(null)), 
-                                        Math.max(1, image.getHeight(null)), 
-                                        BufferedImage.TYPE_INT_ARGB);
-                                    Graphics2D g2d = staticImg.createGraphics();
-                                    g2d.drawImage(image, 0, 0, null);
-                                    g2d.dispose();
-                                    
-                                    ImageIcon originalIcon = new ImageIcon(staticImg);
-                                    
-                                    SwingUtilities.invokeLater(() -> {
-                                        // 设置原始图标到自定义标签
-                                        avatarLabel.setText(null); // 清除文字
-                                        avatarLabel.setOriginalIcon(originalIcon);
-                                        // 仅在头像加载完成后更新UI，避免频繁刷新
-                                        updateUILater();
-                                    });
-                                } else {
-                                    throw new Exception("无法加载图像");
-                                }
-                            }
-                        } catch (Exception e) {
-                            // 头像加载失败，使用默认文字头像
-                            SwingUtilities.invokeLater(() -> {
-                                avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                                avatarLabel.setBackground(new Color(100, 149, 237));
-                                avatarLabel.setForeground(Color.WHITE);
-                                // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
-                                // 仅在头像设置完成后更新UI
-                                updateUILater();
-                            });
-                        }
-                    }).start();
-                } catch (Exception e) {
-                    // 头像加载失败，使用默认文字头像
-                    avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                    avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                    avatarLabel.setBackground(new Color(100, 149, 237));
-                    avatarLabel.setForeground(Color.WHITE);
-                    // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
-                }
-            } else {
-                // 没有头像URL，显示首字母
-                avatarLabel.setText(username.substring(0, 1).toUpperCase());
-                avatarLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                avatarLabel.setBackground(new Color(100, 149, 237));
-                avatarLabel.setForeground(Color.WHITE);
-                // 不需要设置setOpaque(true)，CircleAvatarLabel会处理绘制
+    private void requestFrameLayout() {
+        frameLayoutPending = true;
+        if (inboundDrainScheduled.compareAndSet(false, true)) {
+            inboundFrameTimer.restart();
+        }
+    }
+    
+    /**
+     * 批量处理入站消息：一次插入所有待处理消息，只做一次布局和一次滚动
+     */
+    private void drainInboundMessages() {
+        // 先清除调度标志，处理期间到达的消息会调度下一帧
+        inboundDrainScheduled.set(false);
+        boolean layoutPending = frameLayoutPending;
+        frameLayoutPending = false;
+        if (inboundMessages.isEmpty()) {
+            if (layoutPending) {
+                chatMessagesPanel.revalidate();
+                chatMessagesPanel.repaint();
             }
-        } else {
-            // 如果不显示头像，添加一个空白占位符以保持布局一致
-            JLabel spacerLabel = new JLabel(" ");
-            spacerLabel.setPreferredSize(new Dimension(5, 24));
-            avatarPanel.add(spacerLabel);
+            return;
         }
         
-        userInfoPanel.add(avatarPanel, BorderLayout.WEST);
-        
-                    // 用户名 - 不显示管理员标记，使用更隐蔽的颜色
-            String displayName = username;  // 不再添加[管理员]前缀
-            JLabel nameLabel = new JLabel(displayName);
-            // 使用更隐蔽的颜色，避免红色等醒目颜色
-            nameLabel.setForeground(isAdmin ? new Color(70, 110, 126) : new Color(90, 120, 140));
-            nameLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 5));
-            nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD));
-        nameTimePanel.add(nameLabel);
-        
-        // 时间标签
-        JLabel timeLabel = new JLabel(time);
-        timeLabel.setForeground(new Color(150, 150, 150));
-        timeLabel.setHorizontalAlignment(SwingConstants.LEFT);
-        timeLabel.setFont(timeLabel.getFont().deriveFont(10.0f));
-        nameTimePanel.add(timeLabel);
-        
-        userInfoPanel.add(nameTimePanel, BorderLayout.CENTER);
-        
-        // 消息内容
-        JPanel contentPanel = new JPanel(new BorderLayout());
-        contentPanel.setOpaque(false);
-        contentPanel.setBorder(BorderFactory.createEmptyBorder(2, 3, 5, 5));
+        List<ChatMessageViewModel> batch = new ArrayList<>();
+        ChatMessageViewModel viewModel;
+        while ((viewModel = inboundMessages.poll()) != null) {
+            batch.add(viewModel);
+        }
+        // 先根据速率决定显示模式，刷屏开始的这一帧就使用精简显示
+        // 只统计实时到达的消息，面板重新显示时补渲染的缓存消息不计入
+        updateFloodMode(inboundArrivals.getAndSet(0));
         
-        // 提取消息中的图片URL
-        List<String> imageUrls = new ArrayList<>();
-        if (message.contains("[img]")) {
-            Pattern pattern = Pattern.compile("\\[img\\]([^\\[]+)\\[\\/img\\]");
-            java.util.regex.Matcher matcher = pattern.matcher(message);
-            while (matcher.find()) {
-                imageUrls.add(matcher.group(1));
+        int added = 0;
+        for (ChatMessageViewModel message : batch) {
+            try {
+                addMessageCard(message);
+                added++;
+            } catch (Exception e) {
+                HOT_LOG.warn("drainMessage", 60_000L, () -> "处理聊天消息失败: " + e.getMessage(), e);
             }
         }
         
-        // 创建内容面板
-        JPanel messageContentPanel = new JPanel();
-        messageContentPanel.setLayout(new BoxLayout(messageContentPanel, BoxLayout.Y_AXIS));
-        messageContentPanel.setOpaque(false);
+        if (added == 0 && !layoutPending) {
+            return;
+        }
         
-        // 处理纯文本部分（替换掉图片标签）
-        String textContent = message.replaceAll("\\[img\\][^\\[]+\\[\\/img\\]", "").trim();
-        
-        // 如果有文本内容，添加文本标签
-        if (!textContent.isEmpty()) {
-            JLabel textLabel = new JLabel("<html><div style='width: 100%; line-height: 1.4;'>" + 
-                    textContent.replace("\n", "<br>").replace("<", "&lt;").replace(">", "&gt;") + "</div></html>");
-            textLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
-            textLabel.setForeground(UIManager.getColor("Label.foreground"));
-            textLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-            messageContentPanel.add(textLabel);
+        if (compactMode && added > 0) {
+            compactMessageCount += added;
+            floodBanner.setText("消息过多，已切换为精简显示 · " + compactMessageCount + " 条新消息");
         }
         
-        // 处理图片
-        if (!imageUrls.isEmpty()) {
-            for (String imageUrl : imageUrls) {
-                // 创建图片面板
-                JPanel imagePanel = new JPanel();
-                imagePanel.setLayout(new BoxLayout(imagePanel, BoxLayout.Y_AXIS));
-                imagePanel.setOpaque(false);
-                imagePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-                imagePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-                
-                // 创建图片链接按钮
-                JButton imageLink = new JButton("[图片]");
-                imageLink.setForeground(new Color(59, 130, 246));
-                imageLink.setBorderPainted(false);
-                imageLink.setContentAreaFilled(false);
-                imageLink.setFocusPainted(false);
-                imageLink.setCursor(new Cursor(Cursor.HAND_CURSOR));
-                imageLink.setAlignmentX(Component.LEFT_ALIGNMENT);
-                
-                // 创建图片标签（初始隐藏）
-                JLabel imageLabel = new JLabel();
-                imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-                imageLabel.setVisible(config.isShowImages()); // 根据设置决定初始状态
-                
-                // 异步加载图片
-                new Thread(() -> {
-                    try {
-                        URL url = new URL(imageUrl);
-                        BufferedImage originalImage = ImageIO.read(url);
-                        
-                        if (originalImage != null) {
-                            // 调整图片大小，最大宽度200像素
-                            int originalWidth = originalImage.getWidth();
-                            int originalHeight = originalImage.getHeight();
-                            int newWidth = Math.min(originalWidth, 200);
-                            int newHeight = (int) ((double) originalHeight / originalWidth * newWidth);
-                            
-                            // 创建缩放后的图片
-                            Image scaledImage = originalImage.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
-                            ImageIcon icon = new ImageIcon(scaledImage);
-                            
-                            SwingUtilities.invokeLater(() -> {
-                                imageLabel.setIcon(icon);
-                                imagePanel.revalidate();
-                                imagePanel.repaint();
-                            });
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("无法加载图片: " + e.getMessage());
-                        SwingUtilities.invokeLater(() -> {
-                            imageLabel.setText("无法加载图片");
-                        });
-                    }
-                }).start();
-                
-                // 添加点击事件，切换图片显示/隐藏
-                imageLink.addActionListener(e -> {
-                    boolean visible = !imageLabel.isVisible();
-                    imageLabel.setVisible(visible);
-                    imagePanel.revalidate();
-                    imagePanel.repaint();
-                });
-                
-                // 添加到图片面板
-                imagePanel.add(imageLink);
-                imagePanel.add(imageLabel);
-                
-                // 添加到消息内容面板
-                messageContentPanel.add(imagePanel);
-            }
+        // 搜索过滤生效时，新消息也按当前查询过滤
+        if (searchActive) {
+            applySearchFilter();
         }
         
-        contentPanel.add(messageContentPanel, BorderLayout.CENTER);
+        // 整批消息只触发一次布局，布局完成后由滚动锚点决定是否停留在底部
+        chatMessagesPanel.revalidate();
+        int top = changedRowsTop;
+        changedRowsTop = Integer.MAX_VALUE;
+        if (layoutPending || top == Integer.MAX_VALUE) {
+            chatMessagesPanel.repaint();
+        } else {
+            // 插入位置之上的行没有移动，只重绘插入位置及其下方；重绘区域在绘制时按布局后的大小裁剪
+            chatMessagesPanel.repaint(0, top, chatMessagesPanel.getWidth(), Integer.MAX_VALUE - top);
+        }
+    }
+    
+    /**
+     * 统计入站消息速率并切换显示模式（在EDT上调用）
+     * @param count 本次新到达的消息数
+     */
+    private void updateFloodMode(int count) {
+        int threshold = config.getFloodThreshold();
+        long now = System.currentTimeMillis();
+        if (floodWindowStart == 0) {
+            floodWindowStart = now;
+        }
+        floodWindowCount += count;
         
-        // 添加组件到消息卡片
-        messageCard.add(userInfoPanel, BorderLayout.NORTH);
-        messageCard.add(contentPanel, BorderLayout.CENTER);
+        // 单帧消息数已超过阈值时不必等到窗口结束
+        if (!compactMode && count >= threshold) {
+            setCompactMode(true);
+        }
         
-        // 添加到消息面板
-        chatMessagesPanel.add(messageCard);
-        chatMessagesPanel.add(Box.createVerticalStrut(8)); // 添加间距
-
-        // 不在这里调用revalidate和repaint，改用批量更新UI的方法
-        updateUILater();
+        long elapsed = now - floodWindowStart;
+        if (elapsed < FLOOD_WINDOW_MS) {
+            return;
+        }
+        double rate = floodWindowCount * 1000.0 / elapsed;
+        floodWindowStart = now;
+        floodWindowCount = 0;
         
-        // 记录日志
-        LOG.info("添加消息卡片: " + username + " - " + (message.length() > 20 ? message.substring(0, 20) + "..." : message));
-    });
-}
+        if (!compactMode) {
+            if (rate >= threshold) {
+                setCompactMode(true);
+            }
+        } else if (rate < threshold / 2.0) {
+            if (++calmWindows >= FLOOD_CALM_WINDOWS) {
+                setCompactMode(false);
+            }
+        } else {
+            calmWindows = 0;
+        }
+    }
     
-    // 添加消息计数器，用于批量更新
-    private int pendingMessageCount = 0;
-    private boolean pendingUIUpdate = false;
-    private Timer uiUpdateTimer = null;
+    private void setCompactMode(boolean compact) {
+        compactMode = compact;
+        calmWindows = 0;
+        if (compact) {
+            LOG.info("消息速率过高，切换为精简显示");
+            compactMessageCount = 0;
+            floodBanner.setText("消息过多，已切换为精简显示");
+            floodCheckTimer.start();
+        } else {
+            LOG.info("消息速率恢复正常，恢复完整显示");
+            floodCheckTimer.stop();
+        }
+        floodBanner.setVisible(compact);
+    }
     
     /**
-     * 延迟批量更新UI，减少闪烁
+     * 创建精简消息行：单行纯文本，不加载头像和图片，点击后展开为完整卡片
      */
-    private void updateUILater() {
-        pendingMessageCount++;
-        
-        // 如果已经设置了pendingUIUpdate标志为true，说明是在批量加载历史消息
-        // 此时不触发立即更新，而是等待批量加载完成后一次性更新
-        if (!pendingUIUpdate) {
-            pendingUIUpdate = true;
-            
-            if (uiUpdateTimer != null) {
-                uiUpdateTimer.stop();
+    private JPanel createCompactRow(ChatMessageViewModel viewModel) {
+        JPanel row = new JPanel(new BorderLayout());
+        row.setBackground(UIManager.getColor("EditorPane.background"));
+        row.setBorder(BorderFactory.createEmptyBorder(1, 8, 3, 8));
+        
+        JLabel label = new JLabel(viewModel.getTime() + "  " + viewModel.getSenderName() + ": "
+                + toCompactText(viewModel.getContent()));
+        label.setForeground(UIManager.getColor("Label.foreground"));
+        row.add(label, BorderLayout.CENTER);
+        row.setMaximumSize(new Dimension(Integer.MAX_VALUE, row.getPreferredSize().height));
+        row.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        row.setToolTipText("点击展开");
+        row.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                expandCompactRow(row, viewModel);
             }
-            
-            // 使用计时器延迟更新，延长到300毫秒，合并短时间内的多次更新请求
-            uiUpdateTimer = new Timer(300, e -> {
-                if (pendingUIUpdate) {
-                    // 实际执行UI更新
-                    chatMessagesPanel.revalidate();
-                    
-                    // 只有当有多条消息需要更新时才调用repaint
-                    // 这样可以减少不必要的重绘
-                    if (pendingMessageCount > 0) {
-                        chatMessagesPanel.repaint();
-                    }
-                    
-                    pendingUIUpdate = false;
-                    pendingMessageCount = 0;
-                }
-                ((Timer)e.getSource()).stop();
-            });
-            uiUpdateTimer.setRepeats(false);
-            uiUpdateTimer.start();
+        });
+        return row;
+    }
+    
+    /**
+     * 把精简消息行替换为完整的消息卡片
+     */
+    private void expandCompactRow(JPanel row, ChatMessageViewModel viewModel) {
+        int index = chatMessagesPanel.getComponentZOrder(row);
+        if (index < 0) {
+            return;
         }
+        ChatMessageViewModel fullViewModel = ChatMessageViewModel.prepare(viewModel.getMessage(),
+                config.isShowAvatar() ? avatarCache : null);
+        JPanel messageCard = createMessageCard(fullViewModel);
+        messageCard.putClientProperty(SEARCH_DOC_KEY, row.getClientProperty(SEARCH_DOC_KEY));
+        messageOrder.replace(row, fullViewModel, messageCard);
+        chatMessagesPanel.remove(index);
+        chatMessagesPanel.add(messageCard, index);
+        chatMessagesPanel.revalidate();
+        chatMessagesPanel.repaint();
     }
     
     /**
-     * 智能滚动：根据当前滚动位置决定是否需要滚动到底部
-     * 如果滚动条已经在底部或接近底部，则自动滚动到新内容
-     * 如果用户已经向上滚动查看历史消息，则不自动滚动
+     * 消息内容的单行文本，图片和表情用占位文字表示
      */
-    private boolean shouldScrollToBottom = true;
+    private static String toCompactText(ChatContent content) {
+        StringBuilder text = new StringBuilder();
+        for (ChatContent.Node node : content.getNodes()) {
+            switch (node.getType()) {
+                case TEXT:
+                case LINK:
+                    text.append(node.getValue().replace('\n', ' '));
+                    break;
+                case MENTION:
+                    text.append('@').append(node.getValue());
+                    break;
+                case IMAGE:
+                    text.append("[图片]");
+                    break;
+                case EMOJI:
+                    text.append("[表情]");
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString();
+    }
     
     /**
-     * 检查滚动条是否在底部或接近底部
-     * @return 如果滚动条在底部或接近底部，返回true
+     * 初始化网页视图
      */
-    private boolean isScrollNearBottom() {
-        JScrollBar scrollBar = chatScrollPane.getVerticalScrollBar();
-        int value = scrollBar.getValue();
-        int extent = scrollBar.getVisibleAmount();
-        int maximum = scrollBar.getMaximum();
-        int bottomPosition = maximum - extent;
-        
-        // 如果滚动条位置在最大值减去30像素以内，认为是接近底部
-        boolean nearBottom = (bottomPosition - value <= 30);
-        
-        LOG.info("检查滚动条位置: value=" + value + ", max=" + maximum + 
-                ", extent=" + extent + ", 距底部=" + (bottomPosition - value) + 
-                ", 接近底部=" + nearBottom);
-        
-        return nearBottom;
+    private void initWebView() {
+        // 由于我们不再显示网页视图面板，这个方法可以留空
+        // 或者可以在这里添加一个按钮，点击后在浏览器中打开摸鱼岛网页
+        LOG.info("网页视图已禁用");
     }
     
     /**
-     * 滚动到底部
-     * @param force 是否强制滚动到底部，忽略shouldScrollToBottom标志
+     * 发送消息
      */
-    private void scrollToBottom(boolean force) {
-        // 使用多次延迟执行，确保在所有布局更新后滚动到底部
-        SwingUtilities.invokeLater(() -> {
-            if (force || shouldScrollToBottom) {
-                JScrollBar vertical = chatScrollPane.getVerticalScrollBar();
-                
-                // 第一次尝试滚动到底部
-                vertical.setValue(vertical.getMaximum());
-                
-                // 再次尝试滚动，确保布局更新后滚动到底部
-                SwingUtilities.invokeLater(() -> {
-                    vertical.setValue(vertical.getMaximum());
+    private void sendMessage() {
+        String message = inputField.getText().trim();
+        if (!message.isEmpty()) {
+            sendChatMessage(message);
+            
+            // 清空输入框
+            inputField.setText("");
+            // 添加到历史记录
+            messageHistory.add(message);
+        }
+    }
+    
+    /**
+     * 发送消息到服务器并立即显示待确认的本地消息
+     */
+    private void sendChatMessage(String message) {
+        if (chatService != null && chatService.isConnected()) {
+            try {
+                // 发送失败时返回 null，错误已通过错误监听器显示
+                FishChatService.ChatMessage localMessage = chatService.sendMessage(message);
+                if (localMessage != null) {
+                    // 立即显示待确认的本地消息，服务器回显到达后按消息ID原地替换
+                    ChatMessageViewModel viewModel = ChatMessageViewModel.prepare(localMessage, config.isShowAvatar() ? avatarCache : null);
+                    JPanel pendingCard = addMessageCard(viewModel);
+                    pendingCards.put(localMessage.getId(), new LocalCard(viewModel, pendingCard));
                     
-                    // 第三次尝试，再次确保滚动到最底部
-                    SwingUtilities.invokeLater(() -> {
-                        // 使用Timer延迟100ms再次尝试，这时布局应该已经完全更新
-                        Timer scrollTimer = new Timer(100, e -> {
-                            vertical.setValue(vertical.getMaximum());
-                            ((Timer)e.getSource()).stop();
-                        });
-                        scrollTimer.setRepeats(false);
-                        scrollTimer.start();
-                    });
-                });
+                    // 立即更新UI
+                    chatMessagesPanel.revalidate();
+                    chatMessagesPanel.repaint();
+                    
+                    // 发送消息后总是滚动到底部，确保可以看到自己发送的消息
+                    scrollAnchor.scrollToBottom();
+                }
+            } catch (Exception e) {
+                appendSystemMessage("发送消息失败: " + e.getMessage());
             }
-        });
+        } else {
+            appendSystemMessage("未连接到摸鱼室，无法发送消息。请点击'连接'按钮重新连接。");
+            setConnectionStatus(false, "未连接");
+            connectButton.setText("连接");
+        }
     }
     
     /**
-     * 滚动到底部（使用默认行为，根据shouldScrollToBottom标志决定）
+     * 添加系统消息
      */
-    private void scrollToBottom() {
-        scrollToBottom(false);
+    private void appendSystemMessage(String message) {
+        SwingUtilities.invokeLater(() -> {
+            JPanel systemMessagePanel = new JPanel(new BorderLayout());
+            systemMessagePanel.setBackground(UIManager.getColor("EditorPane.background"));
+            
+            // 移除边框，底部内边距包含与下一条消息的间距
+            systemMessagePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 10, 5));
+            
+            // 不再需要这个处理，已经移到processHtmlContent方法中
+            
+            String htmlContent = processHtmlContent(message);
+            JLabel messageLabel = new JLabel("<html><head><style type=\"text/css\">" +
+                    "img { max-width: 200px !important; width: 200px !important; height: auto !important; }" +
+                    "</style></head><body style='width: 100%'><span style='color: #888888;'>" + htmlContent + "</span></body></html>");
+            
+            systemMessagePanel.add(messageLabel, BorderLayout.CENTER);
+            
+            // 移除最大尺寸限制
+            chatMessagesPanel.add(systemMessagePanel);
+            // 搜索过滤生效时系统消息不显示
+            systemMessagePanel.setVisible(!searchActive);
+            
+            // 与入站消息在同一帧中布局，布局完成后由滚动锚点决定是否停留在底部
+            requestFrameLayout();
+        });
     }
     
     /**
@@ -1525,11 +1581,27 @@ public class FishChatPanel extends JBPanel<FishChatPanel> implements Disposable
             chatService = null;
         }
         
-        // 停止UI更新计时器
-        if (uiUpdateTimer != null) {
-            uiUpdateTimer.stop();
-            uiUpdateTimer = null;
+        searchTimer.stop();
+        searchIndex.clear();
+        messageOrder.clear();
+        pendingCards.clear();
+        failedCards.clear();
+        
+        synchronized (hiddenMessages) {
+            hiddenMessages.clear();
         }
+        collapsedMessages.clear();
+        unreadListener = null;
+        
+        floodCheckTimer.stop();
+        
+        // 停止入站消息帧定时器并丢弃未处理的消息
+        inboundFrameTimer.stop();
+        inboundMessages.clear();
+        
+        // 取消所有未完成的图片和头像加载
+        imageLoader.dispose();
+        avatarCache.dispose();
         
         // 清理资源
         messageHistory.clear();
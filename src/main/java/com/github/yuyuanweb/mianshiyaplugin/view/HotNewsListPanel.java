@@ -1,9 +1,22 @@
 package com.github.yuyuanweb.mianshiyaplugin.view;
 
+import com.github.yuyuanweb.mianshiyaplugin.config.HotNewsConfig;
 import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.github.yuyuanweb.mianshiyaplugin.service.HotNewsArchive;
+import com.github.yuyuanweb.mianshiyaplugin.service.HotNewsClusterer;
 import com.github.yuyuanweb.mianshiyaplugin.service.HotNewsService;
+import com.github.yuyuanweb.mianshiyaplugin.service.HotNewsWatcher;
+import com.github.yuyuanweb.mianshiyaplugin.utils.AdaptiveRefreshScheduler;
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationListener;
+import com.intellij.notification.NotificationType;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.table.JBTable;
@@ -14,13 +27,14 @@ import com.intellij.ui.tabs.TabInfo;
 import com.intellij.ui.tabs.impl.JBTabsImpl;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 // 添加FishChatPanel的导入
 import com.github.yuyuanweb.mianshiyaplugin.view.FishChatPanel;
@@ -32,18 +46,28 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
 
     private final Project project;
     private final JBTable newsTable;
-    private final DefaultTableModel newsTableModel;
-    private final List<HotNews> currentNewsList = new ArrayList<>();
+    private final HotNewsTableModel newsTableModel;
+    // 表格当前显示的平台和预览中的链接，刷新同一平台时据此保留选中行和预览
+    private String shownPlatform;
+    private String previewedUrl;
+    private int hoverRow = -1;
     private final Map<String, List<HotNews>> categoryNews = new LinkedHashMap<>();
     private final JSplitPane mainSplitPane;
     private final JSplitPane contentSplitPane;
     private final HotNewsPreviewPanel previewPanel;
     private final HotNewsService hotNewsService;
-    private javax.swing.Timer refreshTimer;
+    // 跨平台聚类，结果作为“全部平台”显示在平台列表首位
+    private static final String ALL_PLATFORMS = "全部平台";
+    private final HotNewsClusterer clusterer = new HotNewsClusterer();
+    // 历次热榜快照，用于显示排名变化、在榜时长和趋势
+    private final HotNewsArchive archive = new HotNewsArchive();
+    // 新出现的标题包含关注词时提醒
+    private final HotNewsWatcher watcher = new HotNewsWatcher();
+    private final HotNewsConfig config;
+    private final AdaptiveRefreshScheduler refreshScheduler;
     private final JList<String> platformList;
     private final DefaultListModel<String> platformListModel;
     private final LoadingDecorator loadingDecorator;
-    private javax.swing.Timer loadingTimer;
     private final JBTabs tabs;
     private final FishChatPanel fishChatPanel;
 
@@ -62,20 +86,27 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         super(new BorderLayout());
         this.project = project;
         this.hotNewsService = new HotNewsService();
+        this.config = new HotNewsConfig(project);
+        // 热榜每5分钟刷新一次，失败时最长30分钟后重试
+        this.refreshScheduler = new AdaptiveRefreshScheduler("HotNewsRefresh",
+                TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(30), this::fetchAndUpdate);
         this.setBorder(JBUI.Borders.empty(10));
 
         // 初始化组件
         platformListModel = new DefaultListModel<>();
         platformList = new JList<>(platformListModel);
-        newsTableModel = new DefaultTableModel(new String[]{"序号", "标题", "关注数"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        newsTableModel = new HotNewsTableModel();
         newsTable = new JBTable(newsTableModel);
         previewPanel = new HotNewsPreviewPanel(project);
         loadingDecorator = new LoadingDecorator(previewPanel, this, 0);
+        // 加载动画跟随预览的实际加载状态
+        previewPanel.setLoadingListener(loading -> {
+            if (loading) {
+                loadingDecorator.startLoading(false);
+            } else {
+                loadingDecorator.stopLoading();
+            }
+        });
         mainSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
         contentSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
         fishChatPanel = FishChatPanel.getInstance(project);
@@ -87,6 +118,8 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         
         // 创建摸鱼室标签页，使用FishChatPanel
         TabInfo fishTab = new TabInfo(fishChatPanel).setText("摸鱼室");
+        // 摸鱼室不可见时在标签上显示未读消息数
+        fishChatPanel.setUnreadListener(unread -> fishTab.setText(unread > 0 ? "摸鱼室 (" + unread + ")" : "摸鱼室"));
         
         // 先添加摸鱼室标签页，再添加热榜标签页
         tabs.addTab(fishTab);
@@ -95,15 +128,18 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         // 添加标签页到主面板
         this.add(tabs.getComponent(), BorderLayout.CENTER);
 
-        // 启动定时刷新
-        startAutoRefresh();
-        
-        // 加载初始数据
-        refreshData();
+        // 先显示上次保存的快照，热榜标签页显示时再联网刷新
+        loadSnapshot();
     }
 
     private JBPanel createHotNewsPanel() {
         JBPanel panel = new JBPanel<>(new BorderLayout());
+        // 只在热榜可见时定时刷新
+        panel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                refreshScheduler.setVisible(panel.isShowing());
+            }
+        });
 
         // 配置主分割面板
         mainSplitPane.setDividerLocation(150);
@@ -149,32 +185,57 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         newsTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 int row = newsTable.getSelectedRow();
-                if (row >= 0 && row < currentNewsList.size()) {
-                    HotNews news = currentNewsList.get(row);
-                    if (!news.getUrl().isEmpty()) {
-                        if (loadingTimer != null && loadingTimer.isRunning()) {
-                            loadingTimer.stop();
-                            loadingTimer = null;
-                        }
-                        loadingDecorator.startLoading(false);
+                if (row >= 0 && row < newsTableModel.getRowCount()) {
+                    HotNews news = newsTableModel.getNews(row);
+                    // 刷新后重新选中同一条目时不重复加载
+                    if (!StringUtil.isEmpty(news.getUrl()) && !news.getUrl().equals(previewedUrl)) {
+                        previewedUrl = news.getUrl();
                         previewPanel.loadUrl(news.getUrl());
-                        loadingTimer = new javax.swing.Timer(3000, evt -> {
-                            loadingDecorator.stopLoading();
-                            ((javax.swing.Timer) evt.getSource()).stop();
-                            loadingTimer = null;
-                        });
-                        loadingTimer.setRepeats(false);
-                        loadingTimer.start();
+                    }
+                    // 预加载下一条，顺序浏览时可直接切换
+                    if (row + 1 < newsTableModel.getRowCount()) {
+                        previewPanel.prefetch(newsTableModel.getNews(row + 1).getUrl());
                     }
                 }
             }
         });
+
+        // 鼠标在某一行停留片刻后预加载该行
+        javax.swing.Timer hoverTimer = new javax.swing.Timer(300, e -> {
+            int row = hoverRow;
+            if (row >= 0 && row < newsTableModel.getRowCount()) {
+                previewPanel.prefetch(newsTableModel.getNews(row).getUrl());
+            }
+        });
+        hoverTimer.setRepeats(false);
+        MouseAdapter hoverListener = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int row = newsTable.rowAtPoint(e.getPoint());
+                if (row != hoverRow) {
+                    hoverRow = row;
+                    hoverTimer.restart();
+                }
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                hoverRow = -1;
+                hoverTimer.stop();
+            }
+        };
+        newsTable.addMouseListener(hoverListener);
+        newsTable.addMouseMotionListener(hoverListener);
         
         // 设置列宽
         TableColumnModel columnModel = newsTable.getColumnModel();
         columnModel.getColumn(0).setPreferredWidth(50);
         columnModel.getColumn(1).setPreferredWidth(300);
         columnModel.getColumn(2).setPreferredWidth(100);
+        columnModel.getColumn(3).setPreferredWidth(50);
+        columnModel.getColumn(4).setPreferredWidth(60);
+        columnModel.getColumn(HotNewsTableModel.TREND_COLUMN).setPreferredWidth(80);
+        columnModel.getColumn(HotNewsTableModel.TREND_COLUMN).setCellRenderer(new SparklineRenderer());
         
         // 设置序号列居中对齐
         columnModel.getColumn(0).setCellRenderer((table, value, isSelected, hasFocus, row, column) -> {
@@ -191,8 +252,11 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         // 创建工具栏
         JPanel toolbarPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JButton refreshButton = new JButton("刷新");
-        refreshButton.addActionListener(e -> refreshData());
+        refreshButton.addActionListener(e -> refreshScheduler.refreshNow());
         toolbarPanel.add(refreshButton);
+        JButton watchButton = new JButton("关注词");
+        watchButton.addActionListener(e -> editWatchTerms());
+        toolbarPanel.add(watchButton);
 
         // 创建左侧面板（平台列表）
         JPanel leftPanel = new JPanel(new BorderLayout());
@@ -215,79 +279,131 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         return panel;
     }
 
-    private void startAutoRefresh() {
-        if (refreshTimer != null) {
-            refreshTimer.stop();
-        }
-        // 创建定时器，每5分钟刷新一次
-        refreshTimer = new javax.swing.Timer(5 * 60 * 1000, e -> refreshData());
-        refreshTimer.start();
-    }
-
     @Override
     public void dispose() {
-        if (refreshTimer != null) {
-            refreshTimer.stop();
-            refreshTimer = null;
-        }
-        if (previewPanel instanceof Disposable) {
-            ((Disposable) previewPanel).dispose();
-        }
+        Disposer.dispose(refreshScheduler);
+        // 通过 Disposer 释放，同时注销预览面板注册的 LowMemoryWatcher
+        Disposer.dispose(previewPanel);
         if (fishChatPanel instanceof Disposable) {
             ((Disposable) fishChatPanel).dispose();
         }
     }
 
     private void updateNewsTable(String platform) {
-        // 停止当前的加载动画（如果存在）
-        if (loadingTimer != null && loadingTimer.isRunning()) {
-            loadingTimer.stop();
-            loadingTimer = null;
+        List<HotNews> news = categoryNews.getOrDefault(platform, Collections.emptyList());
+        List<HotNewsArchive.Trend> trends = new ArrayList<>(news.size());
+        for (HotNews item : news) {
+            trends.add(archive.trendOf(item));
         }
-        loadingDecorator.stopLoading();  // 确保加载动画停止
-
-        currentNewsList.clear();
-        List<HotNews> news = categoryNews.get(platform);
-        if (news != null) {
-            currentNewsList.addAll(news);
+        if (platform.equals(shownPlatform)) {
+            // 同一平台刷新时只更新变化的行，并按链接重新选中原来的条目
+            int selectedRow = newsTable.getSelectedRow();
+            String selectedUrl = selectedRow >= 0 ? newsTableModel.getNews(selectedRow).getUrl() : null;
+            newsTableModel.setNews(news, trends);
+            if (selectedUrl != null) {
+                for (int row = 0; row < newsTableModel.getRowCount(); row++) {
+                    if (selectedUrl.equals(newsTableModel.getNews(row).getUrl())) {
+                        if (newsTable.getSelectedRow() != row) {
+                            newsTable.setRowSelectionInterval(row, row);
+                        }
+                        break;
+                    }
+                }
+            }
+            return;
         }
+        shownPlatform = platform;
 
-        // 清空并添加新数据
-        while (newsTableModel.getRowCount() > 0) {
-            newsTableModel.removeRow(0);
-        }
+        newsTable.clearSelection();
+        newsTableModel.setNews(news, trends);
 
-        int index = 1;
-        for (HotNews item : currentNewsList) {
-            newsTableModel.addRow(new Object[]{
-                index++,
-                item.getTitle(),
-                String.format("%,d", item.getFollowerCount())
+        // 清空预览面板，同时结束加载动画
+        previewedUrl = null;
+        previewPanel.clearContent();
+    }
+
+    private void loadSnapshot() {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            archive.load();
+            Map<String, List<HotNews>> saved = hotNewsService.loadSnapshot();
+            // 快照中已有的标题不再提醒
+            watcher.setBaseline(saved);
+            Map<String, List<HotNews>> snapshot = withAllPlatforms(saved);
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // 联网数据已先到达时不再显示快照
+                if (categoryNews.isEmpty()) {
+                    updateData(snapshot);
+                }
             });
+        });
+    }
+
+    /**
+     * 在后台线程获取热榜，有变化时回到EDT更新界面
+     */
+    private void fetchAndUpdate() throws Exception {
+        Map<String, List<HotNews>> fetchedNews = hotNewsService.fetchHotNewsByCategory();
+        // 热榜未变化时保留当前表格
+        if (fetchedNews != null) {
+            archive.append(fetchedNews, System.currentTimeMillis());
+            watcher.setTerms(config.getWatchTerms());
+            notifyWatchMatches(watcher.scan(fetchedNews));
+            Map<String, List<HotNews>> allNews = withAllPlatforms(fetchedNews);
+            SwingUtilities.invokeLater(() -> updateData(allNews));
         }
-        
-        // 清空预览面板
-        previewPanel.loadUrl("");
     }
 
-    private void refreshData() {
-        SwingWorker<Map<String, List<HotNews>>, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Map<String, List<HotNews>> doInBackground() {
-                return hotNewsService.fetchHotNewsByCategory();
-            }
+    private void editWatchTerms() {
+        String current = String.join("\n", config.getWatchTerms());
+        String edited = Messages.showMultilineInputDialog(project,
+                "每行一个关注词，新上榜的标题包含任意一个关注词时提醒（不区分大小写）",
+                "热榜关注词", current, null, null);
+        if (edited != null) {
+            config.setWatchTerms(Arrays.asList(edited.split("\n")));
+            // 重新读取以去掉空行
+            watcher.setTerms(config.getWatchTerms());
+        }
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    Map<String, List<HotNews>> fetchedNews = get();
-                    updateData(fetchedNews);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+    private void notifyWatchMatches(List<HotNewsWatcher.Match> matches) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        int shown = Math.min(matches.size(), 5);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < shown; i++) {
+            HotNews news = matches.get(i).getNews();
+            if (i > 0) {
+                content.append("<br>");
             }
-        };
-        worker.execute();
+            content.append('[').append(StringUtil.escapeXmlEntities(StringUtil.notNullize(news.getTypeName()))).append("] ")
+                    .append("<a href=\"").append(StringUtil.escapeXmlEntities(StringUtil.notNullize(news.getUrl()))).append("\">")
+                    .append(StringUtil.escapeXmlEntities(news.getTitle())).append("</a>")
+                    .append("（").append(StringUtil.escapeXmlEntities(String.join("、", matches.get(i).getTerms()))).append("）");
+        }
+        if (matches.size() > shown) {
+            content.append("<br>等 ").append(matches.size()).append(" 条");
+        }
+        Notification notification = NotificationGroupManager.getInstance()
+                .getNotificationGroup(HotNewsWatcher.NOTIFICATION_GROUP)
+                .createNotification("热榜出现关注词", content.toString(), NotificationType.INFORMATION);
+        notification.setListener(NotificationListener.URL_OPENING_LISTENER);
+        notification.notify(project);
+    }
+
+    /**
+     * 在各平台热榜前加入跨平台聚类的结果，在后台线程调用
+     */
+    private Map<String, List<HotNews>> withAllPlatforms(Map<String, List<HotNews>> news) {
+        Map<String, List<HotNews>> result = new LinkedHashMap<>();
+        if (!news.isEmpty()) {
+            result.put(ALL_PLATFORMS, clusterer.cluster(news));
+        }
+        result.putAll(news);
+        return result;
     }
 
     private void updateData(Map<String, List<HotNews>> fetchedNews) {
@@ -295,16 +411,23 @@ public class HotNewsListPanel extends JBPanel<HotNewsListPanel> implements Dispo
         categoryNews.clear();
         categoryNews.putAll(fetchedNews);
 
-        // 更新平台列表
-        platformListModel.clear();
-        fetchedNews.keySet().forEach(platformListModel::addElement);
+        // 平台变化时才重建平台列表
+        String selectedPlatform = platformList.getSelectedValue();
+        if (!new ArrayList<>(fetchedNews.keySet()).equals(Collections.list(platformListModel.elements()))) {
+            platformListModel.clear();
+            fetchedNews.keySet().forEach(platformListModel::addElement);
+        }
 
-        // 如果没有选中的平台，选择第一个
-        if (platformList.getSelectedValue() == null && platformListModel.size() > 0) {
+        if (selectedPlatform != null && fetchedNews.containsKey(selectedPlatform)) {
+            if (selectedPlatform.equals(platformList.getSelectedValue())) {
+                // 刷新当前选中的平台数据
+                updateNewsTable(selectedPlatform);
+            } else {
+                platformList.setSelectedValue(selectedPlatform, false);
+            }
+        } else if (platformListModel.size() > 0) {
+            // 如果没有选中的平台，选择第一个
             platformList.setSelectedIndex(0);
-        } else if (platformList.getSelectedValue() != null) {
-            // 刷新当前选中的平台数据
-            updateNewsTable(platformList.getSelectedValue());
         }
     }
 } 
\ No newline at end of file
@@ -1,16 +1,29 @@
 package com.github.yuyuanweb.mianshiyaplugin.view;
 
+import com.github.yuyuanweb.mianshiyaplugin.config.HotNewsConfig;
+import com.github.yuyuanweb.mianshiyaplugin.service.ReaderModeService;
+import com.github.yuyuanweb.mianshiyaplugin.utils.ArticleExtractor;
+import com.intellij.ide.BrowserUtil;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.jcef.JBCefBrowser;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
 import com.intellij.openapi.Disposable;
 import org.cef.browser.CefBrowser;
-import org.cef.browser.CefFrame;
 import org.cef.handler.CefLoadHandlerAdapter;
-import org.cef.handler.CefLifeSpanHandler;
 
+import javax.swing.*;
+import javax.swing.event.HyperlinkEvent;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 热榜新闻预览面板
@@ -18,19 +31,83 @@ import java.awt.*;
 public class HotNewsPreviewPanel extends JBPanel<HotNewsPreviewPanel> implements Disposable {
 
     private final Project project;
-    private final JBCefBrowser browser;
+    private final HotNewsConfig config;
+    // 当前显示的浏览器，只在网页模式下创建，预加载的浏览器被选中时与其交换
+    private JBCefBrowser browser;
+    private String browserUrl;
     private static final String FISH_URL = "https://fish.codebug.icu/";
+    private static final String READER_CARD = "reader";
+    private static final String BROWSER_CARD = "browser";
+    // 阅读模式中“用网页模式打开”链接的地址
+    private static final String OPEN_IN_BROWSER_LINK = "fish-reader:open-in-browser";
+    private static final int MAX_IMAGE_WIDTH = 520;
+
+    private final CardLayout cardLayout = new CardLayout();
+    private final JPanel contentPanel = new JPanel(cardLayout);
+    private final JEditorPane readerPane = new JEditorPane();
+    private final ReaderModeService readerService = new ReaderModeService();
+    private boolean readerMode;
+    // 最近一次请求预览的链接
+    private String currentUrl;
+
+    /**
+     * 预加载浏览器，按最近使用排序，最久未用的在前
+     */
+    private final List<JBCefBrowser> spares = new ArrayList<>();
+    private final Map<JBCefBrowser, String> spareUrls = new HashMap<>();
+    private final int poolSize;
+    /**
+     * 每个浏览器的加载状态，包括当前显示的和预加载的
+     */
+    private final Map<JBCefBrowser, PreviewLoadTracker> trackers = new HashMap<>();
+    private LoadingListener loadingListener;
 
     public HotNewsPreviewPanel(Project project) {
         super(new BorderLayout());
         this.project = project;
+        this.config = new HotNewsConfig(project);
+        this.poolSize = config.getPreviewPoolSize();
+        this.readerMode = config.isReaderMode();
         this.setBorder(JBUI.Borders.empty(10));
 
-        // 创建浏览器组件
-        browser = new JBCefBrowser();
+        // 阅读模式：下载网页后提取正文，用 Swing 组件显示，不启动浏览器
+        readerPane.setEditable(false);
+        readerPane.setEditorKit(UIUtil.getHTMLEditorKit());
+        readerPane.putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE);
+        readerPane.setBorder(JBUI.Borders.empty(5));
+        readerPane.addHyperlinkListener(e -> {
+            if (e.getEventType() != HyperlinkEvent.EventType.ACTIVATED) {
+                return;
+            }
+            if (OPEN_IN_BROWSER_LINK.equals(e.getDescription())) {
+                if (currentUrl != null) {
+                    showInBrowser(currentUrl);
+                }
+            } else if (e.getURL() != null) {
+                BrowserUtil.browse(e.getURL());
+            }
+        });
+        contentPanel.add(new JBScrollPane(readerPane), READER_CARD);
+        this.add(contentPanel, BorderLayout.CENTER);
+
+        JCheckBox browserModeBox = new JCheckBox("网页模式", !readerMode);
+        browserModeBox.setToolTipText("使用内置浏览器显示完整网页，占用内存较多");
+        browserModeBox.addActionListener(e -> setReaderMode(!browserModeBox.isSelected()));
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        toolbar.add(browserModeBox);
+        this.add(toolbar, BorderLayout.NORTH);
+
+        // 内存不足时释放预加载的浏览器
+        LowMemoryWatcher.register(() -> SwingUtilities.invokeLater(this::releaseSpares), this);
         
+        // 初始化默认内容
+        clearContent();
+    }
+
+    private JBCefBrowser createBrowser() {
+        JBCefBrowser newBrowser = new JBCefBrowser();
         // 添加页面加载处理器
-        browser.getJBCefClient().addLoadHandler(new CefLoadHandlerAdapter() {
+        newBrowser.getJBCefClient().addLoadHandler(new CefLoadHandlerAdapter() {
             @Override
             public void onLoadingStateChange(CefBrowser browser, boolean isLoading, boolean canGoBack, boolean canGoForward) {
                 if (!isLoading) {
@@ -40,12 +117,44 @@ public class HotNewsPreviewPanel extends JBPanel<HotNewsPreviewPanel> implements
                     }
                 }
             }
-        }, browser.getCefBrowser());
+        }, newBrowser.getCefBrowser());
+        PreviewLoadTracker tracker = new PreviewLoadTracker(newBrowser);
+        tracker.setListener((finished, outcome) -> {
+            // 只有当前显示的浏览器影响加载动画
+            if (finished.getBrowser() == browser) {
+                fireLoading(false);
+            }
+        });
+        trackers.put(newBrowser, tracker);
+        return newBrowser;
+    }
 
-        this.add(browser.getComponent(), BorderLayout.CENTER);
-        
-        // 初始化默认内容
-        clearContent();
+    private void disposeBrowser(JBCefBrowser target) {
+        PreviewLoadTracker tracker = trackers.remove(target);
+        if (tracker != null) {
+            tracker.dispose();
+        }
+        target.dispose();
+    }
+
+    /**
+     * 预览加载状态回调，在EDT上调用
+     */
+    public interface LoadingListener {
+        void loadingChanged(boolean loading);
+    }
+
+    /**
+     * 设置加载状态回调，预览开始加载和加载结束（包括失败、取消）时通知
+     */
+    public void setLoadingListener(LoadingListener loadingListener) {
+        this.loadingListener = loadingListener;
+    }
+
+    private void fireLoading(boolean loading) {
+        if (loadingListener != null) {
+            loadingListener.loadingChanged(loading);
+        }
     }
 
     /**
@@ -115,43 +224,234 @@ public class HotNewsPreviewPanel extends JBPanel<HotNewsPreviewPanel> implements
      */
     public void loadUrl(String url) {
         if (url != null && !url.isEmpty()) {
-            browser.loadURL(url);
+            currentUrl = url;
+            if (readerMode) {
+                showInReader(url);
+            } else {
+                showInBrowser(url);
+            }
         }
     }
-    
+
     /**
-     * 加载URL并在加载完成后执行回调
+     * 切换阅读模式和网页模式
      */
-    public void loadUrl(String url, Runnable onLoadFinished) {
-        if (url != null && !url.isEmpty()) {
-            browser.getJBCefClient().addLoadHandler(new CefLoadHandlerAdapter() {
-                @Override
-                public void onLoadingStateChange(CefBrowser browser, boolean isLoading, boolean canGoBack, boolean canGoForward) {
-                    if (!isLoading) {
-                        onLoadFinished.run();
-                        browser.getClient().removeLoadHandler();
-                    }
+    private void setReaderMode(boolean readerMode) {
+        if (this.readerMode == readerMode) {
+            return;
+        }
+        this.readerMode = readerMode;
+        config.setReaderMode(readerMode);
+        if (readerMode) {
+            // 回到阅读模式时释放所有浏览器
+            releaseBrowsers();
+        }
+        if (currentUrl != null) {
+            loadUrl(currentUrl);
+        } else {
+            clearContent();
+        }
+    }
+
+    private void showInReader(String url) {
+        // 提取失败时临时打开的浏览器在显示下一篇正文时释放
+        releaseBrowsers();
+        cardLayout.show(contentPanel, READER_CARD);
+        setReaderHtml("<p style='color:gray'>正在加载...</p>");
+        CompletableFuture<ArticleExtractor.Article> future = readerService.load(url);
+        // 已缓存的正文在下面同步显示，不显示加载动画
+        fireLoading(!future.isDone());
+        future.whenComplete((article, error) -> SwingUtilities.invokeLater(() -> {
+            // 已切换到其他链接或模式时丢弃结果
+            if (!readerMode || !url.equals(currentUrl)) {
+                return;
+            }
+            fireLoading(false);
+            if (article != null) {
+                setReaderHtml(toReaderHtml(article, url));
+            } else {
+                String reason = error != null ? "网页加载失败" : "无法提取该网页的正文";
+                setReaderHtml("<p style='color:gray'>" + reason + "，<a href='" + OPEN_IN_BROWSER_LINK
+                        + "'>用网页模式打开</a></p>");
+            }
+        }));
+    }
+
+    private void setReaderHtml(String body) {
+        readerPane.setText("<html><body>" + body + "</body></html>");
+        readerPane.setCaretPosition(0);
+    }
+
+    private static String toReaderHtml(ArticleExtractor.Article article, String url) {
+        StringBuilder html = new StringBuilder();
+        if (!article.getTitle().isEmpty()) {
+            html.append("<h2>").append(StringUtil.escapeXmlEntities(article.getTitle())).append("</h2>");
+        }
+        for (ArticleExtractor.Block block : article.getBlocks()) {
+            if (block.isImage()) {
+                String src = StringUtil.escapeXmlEntities(block.getImageUrl());
+                int width = block.getImageWidth();
+                int height = block.getImageHeight();
+                if (width > 0 && height > 0) {
+                    // 按页面声明的尺寸等比缩小到面板宽度以内
+                    int scaledWidth = Math.min(width, MAX_IMAGE_WIDTH);
+                    int scaledHeight = (int) ((long) height * scaledWidth / width);
+                    html.append("<p><img src='").append(src).append("' width='").append(scaledWidth)
+                            .append("' height='").append(scaledHeight).append("'></p>");
+                } else {
+                    // 尺寸未知的图片无法等比缩放，只显示链接
+                    html.append("<p><a href='").append(src).append("'>[查看图片]</a></p>");
                 }
-            }, browser.getCefBrowser());
-            browser.loadURL(url);
+            } else if (block.isHeading()) {
+                html.append("<h3>").append(StringUtil.escapeXmlEntities(block.getText())).append("</h3>");
+            } else {
+                html.append("<p>").append(StringUtil.escapeXmlEntities(block.getText())).append("</p>");
+            }
+        }
+        html.append("<p><a href='").append(StringUtil.escapeXmlEntities(url)).append("'>查看原文</a></p>");
+        return html.toString();
+    }
+
+    private void ensureBrowser() {
+        if (browser == null) {
+            browser = createBrowser();
+            contentPanel.add(browser.getComponent(), BROWSER_CARD);
+        }
+        cardLayout.show(contentPanel, BROWSER_CARD);
+    }
+
+    /**
+     * 在浏览器中显示网页，阅读模式下提取失败时也可以临时使用，下一次阅读模式加载时释放
+     */
+    private void showInBrowser(String url) {
+        ensureBrowser();
+        JBCefBrowser warmed = findSpare(url);
+        if (warmed != null) {
+            // 预加载已完成时立即结束加载动画，仍在加载时等待该浏览器的结束事件
+            swapIn(warmed);
+            PreviewLoadTracker tracker = trackers.get(warmed);
+            tracker.markShown();
+            fireLoading(tracker.isLoading());
+        } else {
+            // 先导航再通知，被取消的上一次导航会先通知加载结束
+            trackers.get(browser).navigate(url, false);
+            fireLoading(true);
+        }
+        browserUrl = url;
+    }
+
+    /**
+     * 在后台浏览器中预加载页面，之后选中该页面时直接切换显示
+     * 预加载已关闭或页面已在显示时不做任何事
+     */
+    public void prefetch(String url) {
+        if (readerMode && url != null && !url.isEmpty()) {
+            // 阅读模式下提前下载并提取正文，结果进入缓存
+            readerService.load(url);
+            return;
+        }
+        if (poolSize <= 0 || url == null || url.isEmpty() || url.equals(browserUrl)) {
+            return;
+        }
+        JBCefBrowser spare = findSpare(url);
+        if (spare != null) {
+            spares.remove(spare);
+            spares.add(spare);
+            return;
+        }
+        if (spares.size() < poolSize) {
+            spare = createBrowser();
+            // 未加入界面的浏览器默认延迟创建，这里立即创建才能在后台加载
+            spare.getCefBrowser().createImmediately();
+        } else {
+            // 复用最久未用的预加载浏览器
+            spare = spares.remove(0);
+        }
+        spares.add(spare);
+        spareUrls.put(spare, url);
+        trackers.get(spare).navigate(url, true);
+    }
+
+    private JBCefBrowser findSpare(String url) {
+        for (JBCefBrowser spare : spares) {
+            if (url.equals(spareUrls.get(spare))) {
+                return spare;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 显示预加载的浏览器，原来显示的浏览器转为预加载浏览器，浏览器总数不变
+     */
+    private void swapIn(JBCefBrowser warmed) {
+        spares.remove(warmed);
+        spareUrls.remove(warmed);
+        JBCefBrowser previous = browser;
+        contentPanel.remove(previous.getComponent());
+        browser = warmed;
+        contentPanel.add(warmed.getComponent(), BROWSER_CARD);
+        cardLayout.show(contentPanel, BROWSER_CARD);
+        contentPanel.revalidate();
+        contentPanel.repaint();
+        if (browserUrl != null) {
+            spares.add(previous);
+            spareUrls.put(previous, browserUrl);
+        } else {
+            disposeBrowser(previous);
         }
     }
+
+    /**
+     * 释放当前显示的浏览器和所有预加载浏览器
+     */
+    private void releaseBrowsers() {
+        releaseSpares();
+        if (browser != null) {
+            contentPanel.remove(browser.getComponent());
+            disposeBrowser(browser);
+            browser = null;
+            browserUrl = null;
+        }
+    }
+
+    private void releaseSpares() {
+        for (JBCefBrowser spare : spares) {
+            disposeBrowser(spare);
+        }
+        spares.clear();
+        spareUrls.clear();
+    }
     
     /**
      * 清空内容
      */
     public void clearContent() {
+        currentUrl = null;
+        fireLoading(false);
+        if (readerMode) {
+            releaseBrowsers();
+            cardLayout.show(contentPanel, READER_CARD);
+            setReaderHtml("<div style='text-align:center;padding-top:100px;color:gray'>"
+                    + "<h2>请选择一条新闻查看详情</h2><p>点击左侧列表中的新闻即可查看详细内容</p></div>");
+            return;
+        }
+        ensureBrowser();
         StringBuilder htmlBuilder = new StringBuilder();
         htmlBuilder.append("<html><body style='margin:0;padding:20px;font-family:Arial,sans-serif;color:#666;'>")
                 .append("<div style='text-align:center;padding-top:100px;'>")
                 .append("<h2 style='color:#333;margin-bottom:20px;'>请选择一条新闻查看详情</h2>")
                 .append("<p style='color:#999;'>点击左侧列表中的新闻即可查看详细内容</p>")
                 .append("</div></body></html>");
-        browser.loadHTML(htmlBuilder.toString());
+        trackers.get(browser).loadHtml(htmlBuilder.toString());
+        browserUrl = null;
     }
     
     @Override
     public void dispose() {
-        browser.dispose();
+        releaseSpares();
+        if (browser != null) {
+            disposeBrowser(browser);
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import com.github.yuyuanweb.mianshiyaplugin.service.HotNewsArchive;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热榜表格模型
+ * 整体替换数据时按链接比较新旧列表，只对变化的行发出事件，表格的选中行和滚动位置得以保留；
+ * 关注数、排名变化和在榜时长在替换时格式化一次，渲染时不再重复格式化。
+ */
+public class HotNewsTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"序号", "标题", "关注数", "变化", "在榜", "趋势"};
+    /**
+     * 趋势列的列号，值为最近的排名数组
+     */
+    public static final int TREND_COLUMN = 5;
+
+    private List<HotNews> news = Collections.emptyList();
+    private Row[] rows = new Row[0];
+
+    /**
+     * 替换全部数据
+     * @param trends 与 newNews 一一对应的排名变化，没有历史记录的条目为 null
+     */
+    public void setNews(List<HotNews> newNews, List<HotNewsArchive.Trend> trends) {
+        List<HotNews> oldNews = news;
+        Row[] oldRows = rows;
+        List<HotNews> copy = new ArrayList<>(newNews);
+        long now = System.currentTimeMillis();
+        Row[] newRows = new Row[copy.size()];
+        for (int i = 0; i < newRows.length; i++) {
+            newRows[i] = new Row(copy.get(i), trends.get(i), now);
+        }
+        news = copy;
+        rows = newRows;
+
+        int oldSize = oldNews.size();
+        int newSize = copy.size();
+        // 去掉首尾链接相同的部分，中间部分视为替换
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && sameUrl(oldNews.get(prefix), copy.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && sameUrl(oldNews.get(oldSize - 1 - suffix), copy.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        // 链接相同的行只在标题或关注数变化时更新
+        fireChangedRows(oldNews, oldRows, 0, 0, prefix);
+        int oldMiddle = oldSize - prefix - suffix;
+        int newMiddle = newSize - prefix - suffix;
+        int common = Math.min(oldMiddle, newMiddle);
+        if (common > 0) {
+            fireTableRowsUpdated(prefix, prefix + common - 1);
+        }
+        if (newMiddle > oldMiddle) {
+            fireTableRowsInserted(prefix + common, prefix + newMiddle - 1);
+        } else if (oldMiddle > newMiddle) {
+            fireTableRowsDeleted(prefix + common, prefix + oldMiddle - 1);
+        }
+        fireChangedRows(oldNews, oldRows, oldSize - suffix, newSize - suffix, suffix);
+    }
+
+    public HotNews getNews(int row) {
+        return news.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return news.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if (column == 0) {
+            return Integer.class;
+        }
+        return column == TREND_COLUMN ? int[].class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0:
+                return row + 1;
+            case 1:
+                return news.get(row).getTitle();
+            case 2:
+                return rows[row].count;
+            case 3:
+                return rows[row].delta;
+            case 4:
+                return rows[row].dwell;
+            default:
+                return rows[row].ranks;
+        }
+    }
+
+    /**
+     * 对链接相同但标题或其他列变化的连续行发出更新事件
+     */
+    private void fireChangedRows(List<HotNews> oldNews, Row[] oldRows, int oldStart, int newStart, int length) {
+        int first = -1;
+        for (int i = 0; i < length; i++) {
+            HotNews oldItem = oldNews.get(oldStart + i);
+            HotNews newItem = news.get(newStart + i);
+            boolean changed = !Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    || !oldRows[oldStart + i].sameAs(rows[newStart + i]);
+            if (changed && first < 0) {
+                first = newStart + i;
+            } else if (!changed && first >= 0) {
+                fireTableRowsUpdated(first, newStart + i - 1);
+                first = -1;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(first, newStart + length - 1);
+        }
+    }
+
+    private static boolean sameUrl(HotNews a, HotNews b) {
+        return Objects.equals(a.getUrl(), b.getUrl());
+    }
+
+    /**
+     * 格式化后的列值
+     */
+    private static class Row {
+        private final String count;
+        private final String delta;
+        private final String dwell;
+        private final int[] ranks;
+
+        private Row(HotNews news, HotNewsArchive.Trend trend, long now) {
+            count = String.format("%,d", news.getFollowerCount());
+            if (trend == null) {
+                delta = "";
+                dwell = "";
+                ranks = new int[0];
+                return;
+            }
+            if (trend.isNew()) {
+                delta = "新";
+            } else if (trend.getRankDelta() > 0) {
+                delta = "↑" + trend.getRankDelta();
+            } else if (trend.getRankDelta() < 0) {
+                delta = "↓" + -trend.getRankDelta();
+            } else {
+                delta = "-";
+            }
+            dwell = formatDuration(now - trend.getOnBoardSince());
+            ranks = trend.getRecentRanks();
+        }
+
+        private boolean sameAs(Row other) {
+            return count.equals(other.count) && delta.equals(other.delta)
+                    && dwell.equals(other.dwell) && Arrays.equals(ranks, other.ranks);
+        }
+
+        private static String formatDuration(long millis) {
+            long minutes = TimeUnit.MILLISECONDS.toMinutes(Math.max(0, millis));
+            if (minutes < 60) {
+                return minutes + "分钟";
+            }
+            if (minutes < TimeUnit.DAYS.toMinutes(1)) {
+                return minutes / 60 + "小时";
+            }
+            return TimeUnit.MINUTES.toDays(minutes) + "天";
+        }
+    }
+}
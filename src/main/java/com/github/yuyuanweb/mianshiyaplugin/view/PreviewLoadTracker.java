@@ -0,0 +1,248 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.github.yuyuanweb.mianshiyaplugin.utils.ThrottledLogger;
+import com.intellij.ui.jcef.JBCefBrowser;
+import org.cef.browser.CefBrowser;
+import org.cef.browser.CefFrame;
+import org.cef.handler.CefLoadHandler;
+import org.cef.handler.CefLoadHandlerAdapter;
+import org.cef.network.CefRequest;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预览浏览器的加载状态跟踪
+ * 每个浏览器只注册一个加载处理器，每次导航分配一个编号；CEF 回调中读取当时的导航编号并随事件交给EDT，
+ * 编号不是当前导航的事件直接丢弃，新导航开始时未完成的旧导航记为取消。
+ * 导航发起后、主框架开始加载前收到的结束事件仍属于上一个页面，同样忽略。
+ * 加载耗时计入统计并定期写入日志。
+ */
+public class PreviewLoadTracker {
+
+    private static final ThrottledLogger LOG = ThrottledLogger.getInstance(PreviewLoadTracker.class);
+    /**
+     * 超过此时间仍未收到结束事件时视为超时，避免加载动画一直显示
+     */
+    private static final int TIMEOUT_MS = 20_000;
+    private static final long STATS_LOG_INTERVAL_MS = 60_000;
+    private static final LoadStats STATS = new LoadStats();
+
+    /**
+     * 导航结果
+     */
+    public enum Outcome {
+        LOADED, FAILED, CANCELLED, TIMED_OUT
+    }
+
+    /**
+     * 导航结束回调，在EDT上调用
+     */
+    public interface Listener {
+        void onFinished(PreviewLoadTracker tracker, Outcome outcome);
+    }
+
+    private final JBCefBrowser browser;
+    private final CefLoadHandler loadHandler;
+    private final Timer timeoutTimer;
+    private Listener listener;
+    /**
+     * 当前导航编号，在EDT上修改，在 CEF 线程中读取
+     */
+    private final AtomicLong navigationId = new AtomicLong();
+    private String url;
+    private boolean pending;
+    private boolean started;
+    private boolean prefetch;
+    private long startedAt;
+
+    public PreviewLoadTracker(JBCefBrowser browser) {
+        this.browser = browser;
+        this.timeoutTimer = new Timer(TIMEOUT_MS, e -> finish(navigationId.get(), Outcome.TIMED_OUT));
+        this.timeoutTimer.setRepeats(false);
+        // CEF 回调在 CEF 线程上，事件连同发出时的导航编号一起交给EDT处理
+        this.loadHandler = new CefLoadHandlerAdapter() {
+            @Override
+            public void onLoadStart(CefBrowser cefBrowser, CefFrame frame, CefRequest.TransitionType transitionType) {
+                if (frame.isMain()) {
+                    long id = navigationId.get();
+                    SwingUtilities.invokeLater(() -> onStarted(id));
+                }
+            }
+
+            @Override
+            public void onLoadingStateChange(CefBrowser cefBrowser, boolean isLoading, boolean canGoBack, boolean canGoForward) {
+                if (!isLoading) {
+                    long id = navigationId.get();
+                    SwingUtilities.invokeLater(() -> onStopped(id, Outcome.LOADED));
+                }
+            }
+
+            @Override
+            public void onLoadError(CefBrowser cefBrowser, CefFrame frame, ErrorCode errorCode, String errorText, String failedUrl) {
+                // 被新的导航打断时 CEF 报告 ERR_ABORTED，由 navigate 记为取消
+                if (frame.isMain() && errorCode != ErrorCode.ERR_ABORTED) {
+                    long id = navigationId.get();
+                    SwingUtilities.invokeLater(() -> onStopped(id, Outcome.FAILED));
+                }
+            }
+        };
+        browser.getJBCefClient().addLoadHandler(loadHandler, browser.getCefBrowser());
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始一次导航，未完成的上一次导航记为取消
+     * @param prefetch 是否为后台预加载，分开统计
+     */
+    public void navigate(String url, boolean prefetch) {
+        cancel();
+        navigationId.incrementAndGet();
+        this.url = url;
+        this.prefetch = prefetch;
+        pending = true;
+        started = false;
+        startedAt = System.nanoTime();
+        timeoutTimer.restart();
+        browser.loadURL(url);
+    }
+
+    /**
+     * 显示一段 HTML，未完成的导航记为取消，HTML 的加载不跟踪
+     */
+    public void loadHtml(String html) {
+        cancel();
+        navigationId.incrementAndGet();
+        url = null;
+        browser.loadHTML(html);
+    }
+
+    /**
+     * 取消未完成的导航
+     */
+    public void cancel() {
+        if (pending) {
+            finish(navigationId.get(), Outcome.CANCELLED);
+        }
+    }
+
+    public boolean isLoading() {
+        return pending;
+    }
+
+    /**
+     * 当前或最近一次导航的地址，显示 HTML 后为 null
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public JBCefBrowser getBrowser() {
+        return browser;
+    }
+
+    /**
+     * 预加载的页面被切换显示时调用，已加载完成的计为预加载命中
+     */
+    public void markShown() {
+        if (prefetch) {
+            STATS.recordShown(!pending);
+            prefetch = false;
+        }
+    }
+
+    /**
+     * 移除加载处理器，浏览器销毁前调用
+     */
+    public void dispose() {
+        cancel();
+        timeoutTimer.stop();
+        browser.getJBCefClient().removeLoadHandler(loadHandler, browser.getCefBrowser());
+    }
+
+    /**
+     * 主框架开始加载，只有当前导航的开始事件有效
+     */
+    private void onStarted(long id) {
+        if (pending && id == navigationId.get()) {
+            started = true;
+        }
+    }
+
+    /**
+     * 加载结束或失败，当前导航的主框架尚未开始加载时属于上一个页面
+     */
+    private void onStopped(long id, Outcome outcome) {
+        if (started) {
+            finish(id, outcome);
+        }
+    }
+
+    private void finish(long id, Outcome outcome) {
+        if (!pending || id != navigationId.get()) {
+            return;
+        }
+        pending = false;
+        timeoutTimer.stop();
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        STATS.record(outcome, elapsedMs, prefetch);
+        String finishedUrl = url;
+        boolean background = prefetch;
+        LOG.debug(() -> "Preview " + (background ? "prefetch " : "") + outcome + " in " + elapsedMs + "ms: " + finishedUrl);
+        LOG.info("previewLoadStats", STATS_LOG_INTERVAL_MS, STATS::summary);
+        if (listener != null) {
+            listener.onFinished(this, outcome);
+        }
+    }
+
+    /**
+     * 所有预览浏览器共用的加载统计，只在EDT上访问
+     */
+    private static class LoadStats {
+        private static final int WINDOW = 64;
+        /**
+         * 最近加载成功的耗时，循环写入
+         */
+        private final long[] recent = new long[WINDOW];
+        private int recentCount;
+        private int recentNext;
+        private final int[] outcomes = new int[Outcome.values().length];
+        private int prefetchHits;
+        private int prefetchMisses;
+
+        private void record(Outcome outcome, long elapsedMs, boolean prefetch) {
+            outcomes[outcome.ordinal()]++;
+            // 预加载在后台进行，耗时不代表用户等待的时间
+            if (outcome == Outcome.LOADED && !prefetch) {
+                recent[recentNext] = elapsedMs;
+                recentNext = (recentNext + 1) % WINDOW;
+                recentCount = Math.min(recentCount + 1, WINDOW);
+            }
+        }
+
+        private void recordShown(boolean loaded) {
+            if (loaded) {
+                prefetchHits++;
+            } else {
+                prefetchMisses++;
+            }
+        }
+
+        private String summary() {
+            long[] sorted = Arrays.copyOf(recent, recentCount);
+            Arrays.sort(sorted);
+            String timings = recentCount == 0 ? "无" : "中位 " + sorted[recentCount / 2] + "ms，P95 "
+                    + sorted[Math.min(recentCount - 1, recentCount * 95 / 100)] + "ms";
+            return "热榜预览加载：最近 " + recentCount + " 次耗时" + timings
+                    + "；成功 " + outcomes[Outcome.LOADED.ordinal()]
+                    + "，失败 " + outcomes[Outcome.FAILED.ordinal()]
+                    + "，取消 " + outcomes[Outcome.CANCELLED.ordinal()]
+                    + "，超时 " + outcomes[Outcome.TIMED_OUT.ordinal()]
+                    + "；预加载命中 " + prefetchHits + "，未完成 " + prefetchMisses;
+        }
+    }
+}
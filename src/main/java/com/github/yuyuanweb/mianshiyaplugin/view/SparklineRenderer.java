@@ -0,0 +1,71 @@
+package com.github.yuyuanweb.mianshiyaplugin.view;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+
+/**
+ * 排名趋势图渲染器
+ * 将最近几次快照的排名画成折线，排名越靠前线越高，不在榜的快照断开。
+ */
+public class SparklineRenderer extends JComponent implements TableCellRenderer {
+
+    private static final Color LINE_COLOR = new JBColor(new Color(0x3574F0), new Color(0x548AF7));
+
+    private int[] ranks = new int[0];
+    private Color lineColor = LINE_COLOR;
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value,
+            boolean isSelected, boolean hasFocus, int row, int column) {
+        ranks = value instanceof int[] ? (int[]) value : new int[0];
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        lineColor = isSelected ? table.getSelectionForeground() : LINE_COLOR;
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        int worst = 0;
+        for (int rank : ranks) {
+            worst = Math.max(worst, rank);
+        }
+        if (worst == 0) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(lineColor);
+            int padding = JBUI.scale(3);
+            int width = getWidth() - padding * 2;
+            int height = getHeight() - padding * 2;
+            // 只有一个点时画在中间
+            int steps = Math.max(1, ranks.length - 1);
+            int previousX = -1;
+            int previousY = -1;
+            for (int i = 0; i < ranks.length; i++) {
+                if (ranks[i] == 0) {
+                    previousX = -1;
+                    continue;
+                }
+                int x = padding + (ranks.length == 1 ? width / 2 : width * i / steps);
+                int y = padding + (worst == 1 ? height / 2 : height * (ranks[i] - 1) / (worst - 1));
+                if (previousX >= 0) {
+                    g2.drawLine(previousX, previousY, x, y);
+                } else {
+                    g2.fillOval(x - 1, y - 1, 3, 3);
+                }
+                previousX = x;
+                previousY = y;
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+}
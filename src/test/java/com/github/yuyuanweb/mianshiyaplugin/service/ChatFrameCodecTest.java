@@ -0,0 +1,203 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 帧编解码器测试
+ */
+public class ChatFrameCodecTest {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_OBJECT = 7;
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void roundTripsChatFrame() {
+        JsonObject frame = chatFrame();
+        assertEquals(frame, roundTrip(frame));
+    }
+
+    @Test
+    public void roundTripsUnknownKeysAndNumbers() {
+        JsonObject frame = new JsonObject();
+        frame.addProperty("unknownField", "值");
+        frame.addProperty("", "空字段名");
+        frame.addProperty("negative", -123456789L);
+        frame.addProperty("ratio", 0.25);
+        frame.addProperty("huge", new BigInteger("123456789012345678901234567890"));
+        frame.addProperty("flag", false);
+        frame.add("missing", null);
+        JsonArray users = new JsonArray();
+        users.add("a");
+        users.add(7);
+        users.add(new JsonArray());
+        users.add(new JsonObject());
+        frame.add("users", users);
+        JsonObject decoded = roundTrip(frame);
+        assertEquals(frame.keySet(), decoded.keySet());
+        assertEquals("值", decoded.get("unknownField").getAsString());
+        assertEquals("空字段名", decoded.get("").getAsString());
+        assertEquals(-123456789L, decoded.get("negative").getAsLong());
+        assertEquals(0.25, decoded.get("ratio").getAsDouble(), 0);
+        assertEquals(1.2345678901234568E29, decoded.get("huge").getAsDouble(), 0);
+        assertFalse(decoded.get("flag").getAsBoolean());
+        assertTrue(decoded.get("missing").isJsonNull());
+        assertEquals(users, decoded.get("users"));
+    }
+
+    @Test
+    public void encodesVarintBoundaries() {
+        // zigzag 编码后 0..63 和 -64..-1 占 1 字节，每多 7 位多 1 字节
+        assertIntegerSize(0, 1);
+        assertIntegerSize(63, 1);
+        assertIntegerSize(-64, 1);
+        assertIntegerSize(64, 2);
+        assertIntegerSize(-65, 2);
+        assertIntegerSize(8191, 2);
+        assertIntegerSize(8192, 3);
+        assertIntegerSize(-1, 1);
+        assertIntegerSize(Integer.MAX_VALUE, 5);
+        assertIntegerSize(Integer.MIN_VALUE, 5);
+        assertIntegerSize(Long.MAX_VALUE, 10);
+        assertIntegerSize(Long.MIN_VALUE, 10);
+    }
+
+    @Test
+    public void encodesStringLengthBoundaries() {
+        for (int length : new int[]{0, 127, 128, 16383, 16384}) {
+            char[] chars = new char[length];
+            Arrays.fill(chars, 'a');
+            JsonObject frame = new JsonObject();
+            frame.addProperty("content", new String(chars));
+            assertEquals(frame, roundTrip(frame));
+        }
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        byte[] encoded = BinaryChatFrameCodec.INSTANCE.encode(chatFrame());
+        for (int length = 0; length < encoded.length; length++) {
+            assertRejected(Arrays.copyOf(encoded, length));
+        }
+    }
+
+    @Test
+    public void rejectsCorruptFrames() {
+        // 未知的值类型
+        assertRejected(new byte[]{8});
+        // 字段编号超出字典
+        assertRejected(new byte[]{TYPE_OBJECT, 1, 127, TYPE_NULL});
+        // 字符串长度超出帧范围
+        assertRejected(new byte[]{TYPE_STRING, 10, 'a'});
+        // 数量超出帧范围
+        assertRejected(new byte[]{TYPE_OBJECT, 100, 1, TYPE_NULL});
+        // varint 超过 10 字节
+        byte[] longVarint = new byte[12];
+        longVarint[0] = TYPE_INTEGER;
+        Arrays.fill(longVarint, 1, longVarint.length, (byte) 0x80);
+        assertRejected(longVarint);
+    }
+
+    @Test
+    public void rejectsNonObjectFrame() {
+        assertRejected(new byte[]{TYPE_NULL});
+        assertRejected(new byte[]{TYPE_STRING, 1, 'a'});
+    }
+
+    @Test
+    public void selectsCodecBySubprotocol() {
+        assertSame(BinaryChatFrameCodec.INSTANCE, ChatFrameCodec.forSubprotocol(BinaryChatFrameCodec.SUBPROTOCOL));
+        assertSame(JsonChatFrameCodec.INSTANCE, ChatFrameCodec.forSubprotocol(null));
+        assertSame(JsonChatFrameCodec.INSTANCE, ChatFrameCodec.forSubprotocol(""));
+        assertSame(JsonChatFrameCodec.INSTANCE, ChatFrameCodec.forSubprotocol("fish-chat.bin.v2"));
+    }
+
+    @Test
+    public void fallsBackToJsonFrames() {
+        JsonObject frame = chatFrame();
+        String json = gson.toJson(frame);
+        ChatFrameCodec fallback = ChatFrameCodec.forSubprotocol(null);
+        assertEquals(frame, fallback.decodeText(json));
+        assertEquals(frame, fallback.decodeBinary(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        // 协商二进制子协议后服务器发送的文本帧仍按 JSON 解析
+        assertEquals(frame, BinaryChatFrameCodec.INSTANCE.decodeText(json));
+    }
+
+    private static JsonObject roundTrip(JsonObject frame) {
+        byte[] encoded = BinaryChatFrameCodec.INSTANCE.encode(frame);
+        return BinaryChatFrameCodec.INSTANCE.decodeBinary(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * 只含 userId 一个字段的帧：对象类型、字段数、字段编号、值类型各 1 字节，其余为 varint
+     */
+    private static void assertIntegerSize(long value, int varintBytes) {
+        JsonObject frame = new JsonObject();
+        frame.addProperty("userId", value);
+        byte[] encoded = BinaryChatFrameCodec.INSTANCE.encode(frame);
+        assertEquals("编码 " + value, 4 + varintBytes, encoded.length);
+        assertEquals(value, BinaryChatFrameCodec.INSTANCE.decodeBinary(ByteBuffer.wrap(encoded)).get("userId").getAsLong());
+    }
+
+    private static void assertRejected(byte[] frame) {
+        try {
+            BinaryChatFrameCodec.INSTANCE.decodeBinary(ByteBuffer.wrap(frame));
+            fail("应拒绝帧 " + Arrays.toString(frame));
+        } catch (IllegalArgumentException expected) {
+            // 解码失败时 FishChatService 丢弃该帧
+        }
+    }
+
+    /**
+     * 与 FishChatService 发送的聊天消息结构相同的帧
+     */
+    private static JsonObject chatFrame() {
+        JsonObject sender = new JsonObject();
+        sender.addProperty("id", "1816001696590692353");
+        sender.addProperty("name", "摸鱼用户");
+        sender.addProperty("avatar", "https://api.oss.cqbo.com/moyu/user_avatar/1816001696590692353/avatar.png");
+        sender.addProperty("level", 6);
+        sender.addProperty("points", 1520);
+        sender.addProperty("isAdmin", false);
+        sender.addProperty("region", "广东");
+        sender.addProperty("country", "中国");
+        sender.addProperty("avatarFramerUrl", "https://api.oss.cqbo.com/moyu/frame/1.png");
+        sender.addProperty("titleId", "2");
+
+        JsonObject message = new JsonObject();
+        message.addProperty("id", "msg-1");
+        message.addProperty("content", "今天的热榜有点意思 [img]https://example.com/a.png[/img]");
+        message.add("sender", sender);
+        message.addProperty("timestamp", "2025-06-27T03:33:00.750Z");
+        message.addProperty("region", "广东");
+        message.addProperty("country", "中国");
+
+        JsonObject content = new JsonObject();
+        content.add("message", message);
+        JsonObject data = new JsonObject();
+        data.addProperty("type", "chat");
+        data.add("content", content);
+        JsonObject frame = new JsonObject();
+        frame.addProperty("type", 2);
+        frame.addProperty("userId", -1);
+        frame.add("data", data);
+        return frame;
+    }
+}
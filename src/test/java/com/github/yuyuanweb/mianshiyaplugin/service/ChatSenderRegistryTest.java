@@ -0,0 +1,134 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 发送者注册表测试
+ */
+public class ChatSenderRegistryTest {
+
+    @Test
+    public void resolvesSameSenderToSameInstance() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender first = registry.canonicalize(parsed(1), 1);
+        for (int time = 2; time < 10; time++) {
+            assertSame(first, registry.canonicalize(parsed(1), time));
+        }
+        assertNotSame(first, registry.canonicalize(parsed(2), 10));
+        assertSame(first, registry.canonicalize(parsed(1), 11));
+    }
+
+    @Test
+    public void sendersWithoutIdAreNotShared() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender anonymous = parsed(1);
+        anonymous.setId(null);
+        FishChatService.Sender first = registry.canonicalize(anonymous, 1);
+        assertNotSame(first, registry.canonicalize(anonymous, 2));
+        assertNull(registry.canonicalize(null, 3));
+    }
+
+    @Test
+    public void poolsRepeatedStrings() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender a = registry.canonicalize(parsed(1), 1);
+        FishChatService.Sender b = registry.canonicalize(parsed(2), 1);
+        assertSame(a.getRegion(), b.getRegion());
+        assertSame(a.getCountry(), b.getCountry());
+    }
+
+    @Test
+    public void placeholdersDoNotOverwrite() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender known = registry.canonicalize(parsed(1), 1);
+        FishChatService.Sender local = parsed(1);
+        local.setRegion("未知");
+        local.setCountry("未知");
+        FishChatService.Sender merged = registry.canonicalize(local, 2);
+        assertSame(known, merged);
+        assertEquals("广东", merged.getRegion());
+    }
+
+    @Test
+    public void olderRecordsOnlyFillMissingFields() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender current = parsed(1);
+        current.setName("新名字");
+        current.setLevel(5);
+        current.setTitleId(null);
+        registry.canonicalize(current, 100);
+
+        FishChatService.Sender old = parsed(1);
+        old.setName("旧名字");
+        old.setLevel(3);
+        old.setTitleId("7");
+        FishChatService.Sender merged = registry.canonicalize(old, 50);
+        assertEquals("新名字", merged.getName());
+        assertEquals(5, merged.getLevel());
+        assertEquals("7", merged.getTitleId());
+    }
+
+    @Test
+    public void changesReplaceInsteadOfMutating() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender before = registry.canonicalize(parsed(1), 1);
+        FishChatService.Sender renamed = parsed(1);
+        renamed.setName("改名");
+        FishChatService.Sender after = registry.canonicalize(renamed, 2);
+        assertNotSame(before, after);
+        assertEquals("用户1", before.getName());
+        assertEquals("改名", after.getName());
+        assertSame(after, registry.canonicalize(parsed(1), 1));
+        assertSame(after, registry.canonicalize(renamed, 3));
+
+        FishChatService.Sender promoted = parsed(1);
+        promoted.setName("改名");
+        promoted.setLevel(9);
+        promoted.setPoints(500);
+        promoted.setAdmin(true);
+        FishChatService.Sender latest = registry.canonicalize(promoted, 4);
+        assertNotSame(after, latest);
+        assertEquals(9, latest.getLevel());
+        assertEquals(500, latest.getPoints());
+        assertTrue(latest.isAdmin());
+        assertEquals(1, after.getLevel());
+        assertSame(latest, registry.canonicalize(parsed(1), 3));
+    }
+
+    @Test
+    public void releasesLeastRecentlyUsedSenders() {
+        ChatSenderRegistry registry = new ChatSenderRegistry();
+        FishChatService.Sender unused = registry.canonicalize(parsed(0), 1);
+        FishChatService.Sender active = registry.canonicalize(parsed(1), 1);
+        for (int user = 2; user < ChatSenderRegistry.MAX_SENDERS + 2; user++) {
+            registry.canonicalize(parsed(user), 1);
+            assertSame(active, registry.canonicalize(parsed(1), 1));
+        }
+        // 长时间没有消息的发送者已从注册表移除，再次出现时创建新实例
+        assertNotSame(unused, registry.canonicalize(parsed(0), 1));
+        assertSame(active, registry.canonicalize(parsed(1), 1));
+    }
+
+    /**
+     * 模拟解析出的发送者，每次都是新的字符串实例
+     */
+    private static FishChatService.Sender parsed(int user) {
+        FishChatService.Sender sender = new FishChatService.Sender();
+        sender.setId(new String("id-" + user));
+        sender.setName(new String("用户" + user));
+        sender.setAvatar(new String("https://example.com/avatar/" + user + ".png"));
+        sender.setLevel(user % 10);
+        sender.setPoints(user * 10);
+        sender.setRegion(new String("广东"));
+        sender.setCountry(new String("中国"));
+        sender.setAvatarFramerUrl(new String("https://example.com/frame/1.png"));
+        sender.setTitleId(new String("1"));
+        return sender;
+    }
+}
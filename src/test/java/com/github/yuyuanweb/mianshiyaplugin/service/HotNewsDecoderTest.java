@@ -0,0 +1,138 @@
+package com.github.yuyuanweb.mianshiyaplugin.service;
+
+import com.github.yuyuanweb.mianshiyaplugin.model.HotNews;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 热榜解析器测试
+ * 样本中的单引号在解析前替换为双引号
+ */
+public class HotNewsDecoderTest {
+
+    private static final String RESPONSE = "{'code':0,'message':'ok','data':["
+            + "{'id':'1','name':'zhihu','typeName':'知乎','iconUrl':'https://i/1.png','updateTime':'2025-06-27 11:33:00',"
+            + "'category':1,'data':["
+            + "{'title':'标题一','url':'https://a/1','followerCount':12},"
+            + "{'title':'标题二','url':'https://a/2','followerCount':3}]},"
+            + "{'id':'2','typeName':'微博','data':[{'title':'热搜','url':'https://b/1','followerCount':7}]}]}";
+
+    @Test
+    public void decodesPlatformsInResponseOrder() throws IOException {
+        Map<String, List<HotNews>> decoded = decode(RESPONSE);
+
+        assertEquals(Arrays.asList("知乎", "微博"), Arrays.asList(decoded.keySet().toArray()));
+        List<HotNews> zhihu = decoded.get("知乎");
+        assertEquals(2, zhihu.size());
+        assertNews(zhihu.get(0), "知乎", "标题一", "https://a/1", 12);
+        assertNews(zhihu.get(1), "知乎", "标题二", "https://a/2", 3);
+        assertNews(decoded.get("微博").get(0), "微博", "热搜", "https://b/1", 7);
+    }
+
+    @Test
+    public void decodesFieldsInAnyOrder() throws IOException {
+        Map<String, List<HotNews>> decoded = decode("{'data':[{'data':[{'followerCount':12,'url':'https://a',"
+                + "'title':'标题'}],'typeName':'知乎'}],'code':0}");
+
+        assertNews(decoded.get("知乎").get(0), "知乎", "标题", "https://a", 12);
+    }
+
+    @Test
+    public void missingDataYieldsNoPlatforms() throws IOException {
+        assertTrue(decode("{'code':0}").isEmpty());
+        assertTrue(decode("{'code':0,'data':null}").isEmpty());
+        assertTrue(decode("{'code':0,'data':[]}").isEmpty());
+        assertTrue(decode("{'code':0,'data':{'typeName':'知乎'}}").isEmpty());
+        assertTrue(decode("[]").isEmpty());
+    }
+
+    @Test
+    public void platformsWithoutItemsAreDropped() throws IOException {
+        Map<String, List<HotNews>> decoded = decode("{'code':0,'data':[{'typeName':'空'},"
+                + "{'typeName':'无数据','data':null},{'typeName':'知乎','data':[]}]}");
+
+        assertEquals(1, decoded.size());
+        assertTrue(decoded.get("知乎").isEmpty());
+    }
+
+    @Test
+    public void rejectsNonZeroCode() {
+        assertRejected("{'code':500,'message':'error','data':null}");
+        // 状态码在数据之后也要检查
+        assertRejected("{'data':[{'typeName':'知乎','data':[{'title':'标题'}]}],'code':40100}");
+        assertRejected("{'code':-1,'data':[]}");
+    }
+
+    @Test
+    public void missingTypeNameKeepsItemsUnderNullPlatform() throws IOException {
+        Map<String, List<HotNews>> decoded = decode("{'code':0,'data':[{'data':[{'title':'无平台'}]},"
+                + "{'typeName':null,'data':[{'title':'空平台'}]},{'typeName':'知乎','data':[{'title':'标题'}]}]}");
+
+        assertEquals(2, decoded.size());
+        List<HotNews> unnamed = decoded.get(null);
+        assertEquals(1, unnamed.size());
+        // 两个分组都没有平台名，以后出现的为准
+        assertNews(unnamed.get(0), null, "空平台", null, 0);
+        assertNews(decoded.get("知乎").get(0), "知乎", "标题", null, 0);
+    }
+
+    @Test
+    public void ignoresUnknownFieldsAndNulls() throws IOException {
+        Map<String, List<HotNews>> decoded = decode("{'code':0,'extra':{'nested':[1,{'a':null}]},'data':["
+                + "1,'text',null,{'typeName':'知乎','meta':[{'data':[{'title':'不是条目'}]}],'data':["
+                + "{'title':'标题','rank':1,'tags':['a','b'],'extra':{'followerCount':99},'followerCount':5},"
+                + "{'title':null,'url':null,'followerCount':null},"
+                + "'skipped',null]}]}");
+
+        List<HotNews> news = decoded.get("知乎");
+        assertEquals(2, news.size());
+        assertNews(news.get(0), "知乎", "标题", null, 5);
+        assertNews(news.get(1), "知乎", null, null, 0);
+    }
+
+    @Test
+    public void rejectsMalformedResponse() {
+        assertRejected("{'data':[{'data':[{'followerCount':'abc'}]}]}");
+        assertRejected("{'data':[{'data':[{'title':{'text':'标题'}}]}]}");
+        assertRejected("{'code':0,'data':[{'typeName':'知乎','data':[{'title':'标题'");
+        assertRejected("");
+    }
+
+    @Test
+    public void reusesPlatformNames() throws IOException {
+        String first = decode(RESPONSE).keySet().iterator().next();
+        String second = decode(RESPONSE).keySet().iterator().next();
+        assertSame(first, second);
+        assertSame(first, decode(RESPONSE).get(first).get(0).getTypeName());
+    }
+
+    private static Map<String, List<HotNews>> decode(String fixture) throws IOException {
+        return HotNewsDecoder.decode(fixture.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertRejected(String fixture) {
+        try {
+            decode(fixture);
+            fail("应拒绝响应 " + fixture);
+        } catch (IOException expected) {
+            // HotNewsService 收到异常后退避重试，保留已显示的数据
+        }
+    }
+
+    private static void assertNews(HotNews news, String typeName, String title, String url, long followerCount) {
+        assertEquals(typeName, news.getTypeName());
+        assertEquals(title, news.getTitle());
+        assertEquals(url, news.getUrl());
+        assertEquals(followerCount, news.getFollowerCount());
+    }
+}